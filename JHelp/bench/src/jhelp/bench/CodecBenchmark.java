@@ -0,0 +1,115 @@
+/*
+ * Class CodecBenchmark.
+ */
+package jhelp.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+import jhelp.Compressor;
+import jhelp.Data;
+import jhelp.DataCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of round trip of SELECT response through binary form of
+ * {@link DataCodec}, through compressed binary form and through Java
+ * serialization, which is used by <code>object</code> protocol.
+ *
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    /**
+     * Number of definitions of the response.
+     */
+    @Param({"1", "16", "256"})
+    public int definitions;
+    /**
+     * Length of every definition.
+     */
+    @Param({"64", "1024"})
+    public int length;
+    private Data data;
+    private DataCodec codec;
+    private Compressor compressor;
+
+    /**
+     * Method makes the response.
+     */
+    @Setup
+    public void setup() {
+        data = Fixtures.data(definitions, length);
+        codec = new DataCodec();
+        compressor = new Compressor();
+    }
+
+    /**
+     * Encoding and decoding by {@link DataCodec}.
+     *
+     * @return decoded object.
+     * @throws IOException never.
+     */
+    @Benchmark
+    public Data binary() throws IOException {
+        int n = codec.encode(data);
+        return new DataCodec().decode(codec.buffer(), 0, n);
+    }
+
+    /**
+     * Encoding, compression, decompression and decoding, the way of frames
+     * of connection with {@link jhelp.DataLink#COMPRESSION} capability. Short
+     * frames aren't compressed.
+     *
+     * @return decoded object.
+     * @throws IOException never.
+     */
+    @Benchmark
+    public Data compressed() throws IOException {
+        int n = codec.encode(data);
+        int k = compressor.deflate(codec.buffer(), n);
+        if (k < 0) {
+            return new DataCodec().decode(codec.buffer(), 0, n);
+        }
+        byte[] raw = compressor.inflate(compressor.deflated(), 0, k, n);
+        return new DataCodec().decode(raw, 0, n);
+    }
+
+    /**
+     * Java serialization of the object.
+     *
+     * @return deserialized object.
+     * @throws IOException never.
+     * @throws ClassNotFoundException never.
+     */
+    @Benchmark
+    public Data serialization() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(data);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (Data) in.readObject();
+        }
+    }
+}
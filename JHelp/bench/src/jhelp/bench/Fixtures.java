@@ -0,0 +1,270 @@
+/*
+ * Class Fixtures.
+ */
+package jhelp.bench;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.Random;
+import jhelp.Data;
+import jhelp.DataLink;
+import jhelp.Item;
+import jhelp.JHelp;
+import jhelp.Server;
+import jhelp.ServerDb;
+
+/**
+ * This class prepares environment of benchmarks: synthetic dictionary in
+ * embedded in-memory Derby database, configuration files and running
+ * {@link ServerDb} and {@link Server} objects. Text of the dictionary is
+ * generated by {@link Random} with fixed seed, so every run uses the same
+ * data.
+ *
+ * @version 1.0
+ */
+public final class Fixtures {
+
+    private static final String[] WORDS = {"a", "the", "term", "value",
+        "language", "database", "network", "request", "server", "client",
+        "definition", "of", "is", "used", "for", "object", "with", "data"};
+
+    private Fixtures() {
+    }
+
+    /**
+     * Method returns url of in-memory database.
+     *
+     * @param name name of the database.
+     * @return url for {@link DriverManager} and <code>url</code> property of
+     * {@link ServerDb} object.
+     */
+    public static String url(String name) {
+        return "jdbc:derby:memory:" + name + ";create=true";
+    }
+
+    /**
+     * Method returns name of synthetic term.
+     *
+     * @param index number of the term.
+     * @return name of the term.
+     */
+    public static String term(int index) {
+        return String.format("term%06d", index);
+    }
+
+    /**
+     * Method returns text of given length made of dictionary words.
+     *
+     * @param random source of words.
+     * @param length length of the text.
+     * @return the text.
+     */
+    public static String text(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length + 16);
+        while (sb.length() < length) {
+            sb.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        sb.setLength(length);
+        return sb.toString();
+    }
+
+    /**
+     * Method returns random word of the dictionary.
+     *
+     * @param random source of the word.
+     * @return the word.
+     */
+    public static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    /**
+     * Method returns SELECT response with the definitions.
+     *
+     * @param definitions number of definitions.
+     * @param length length of every definition.
+     * @return new {@link Data} object.
+     */
+    public static Data data(int definitions, int length) {
+        Random random = new Random(definitions * 31 + length);
+        Item[] values = new Item[definitions];
+        for (int i = 0; i < definitions; ++i) {
+            values[i] = new Item(i + 1, text(random, length), JHelp.ORIGIN);
+        }
+        Data data = new Data(JHelp.ORIGIN, new Item(1, term(1), JHelp.ORIGIN),
+                values);
+        data.setVersion(System.currentTimeMillis());
+        data.setTotal(definitions);
+        return data;
+    }
+
+    /**
+     * Method creates tables of the dictionary and fills them.
+     *
+     * @param url url of the database.
+     * @param terms number of terms.
+     * @param definitions number of definitions of every term.
+     * @param length length of every definition.
+     * @throws SQLException if database error occurs.
+     */
+    public static void dictionary(String url, int terms, int definitions,
+            int length) throws SQLException {
+        Random random = new Random(terms * 31 + definitions);
+        try (Connection con = DriverManager.getConnection(url, "DBjhelp",
+                "DBjhelp")) {
+            try (Statement st = con.createStatement()) {
+                st.execute("CREATE TABLE TBLTERMS (ID INT PRIMARY KEY, "
+                        + "TERM VARCHAR(128) NOT NULL)");
+                st.execute("CREATE TABLE TBLDEFINITIONS (ID INT PRIMARY KEY, "
+                        + "DEFINITION VARCHAR(4000) NOT NULL, "
+                        + "TERM_ID INT REFERENCES TBLTERMS(ID))");
+            }
+            con.setAutoCommit(false);
+            try (PreparedStatement pt = con.prepareStatement(
+                    "INSERT INTO TBLTERMS VALUES (?, ?)");
+                    PreparedStatement pd = con.prepareStatement(
+                            "INSERT INTO TBLDEFINITIONS VALUES (?, ?, ?)")) {
+                int idDef = 0;
+                for (int t = 1; t <= terms; ++t) {
+                    pt.setInt(1, t);
+                    pt.setString(2, term(t));
+                    pt.addBatch();
+                    for (int d = 0; d < definitions; ++d) {
+                        pd.setInt(1, ++idDef);
+                        pd.setString(2, text(random, length));
+                        pd.setInt(3, t);
+                        pd.addBatch();
+                    }
+                    pt.executeBatch();
+                    pd.executeBatch();
+                }
+            }
+            con.commit();
+        }
+    }
+
+    /**
+     * Method writes configuration file.
+     *
+     * @param prop properties of the file.
+     * @return path of the file.
+     * @throws IOException if the file can't be written.
+     */
+    public static String config(Properties prop) throws IOException {
+        File file = File.createTempFile("jhelp-bench", ".cfg");
+        file.deleteOnExit();
+        try (FileWriter fw = new FileWriter(file)) {
+            prop.store(fw, "jhelp benchmark");
+        }
+        return file.getPath();
+    }
+
+    /**
+     * Method returns configuration of {@link ServerDb} object which uses
+     * the database and has all indexes switched off.
+     *
+     * @param url url of the database.
+     * @param serverPort port for {@link Server} objects.
+     * @return the configuration.
+     */
+    public static Properties serverDbConfig(String url, int serverPort) {
+        Properties prop = new Properties();
+        prop.setProperty("url", url);
+        prop.setProperty("user", "DBjhelp");
+        prop.setProperty("password", "DBjhelp");
+        prop.setProperty("serverPort", String.valueOf(serverPort));
+        prop.setProperty("poolMin", "2");
+        prop.setProperty("poolMax", "8");
+        prop.setProperty("termIndex", "false");
+        prop.setProperty("prefixIndex", "false");
+        prop.setProperty("fuzzyIndex", "false");
+        prop.setProperty("textIndex", "false");
+        return prop;
+    }
+
+    /**
+     * Method returns free port of loopback interface.
+     *
+     * @return port number.
+     * @throws IOException if no port is free.
+     */
+    public static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Method starts server application in daemon thread and waits until it
+     * accepts connections.
+     *
+     * @param main <code>main</code> method of the application, for example
+     * <code>Server::main</code>.
+     * @param config path of configuration file.
+     * @param port port of the application.
+     * @throws IOException if the application doesn't start in 30 seconds.
+     * @throws InterruptedException if waiting is interrupted.
+     */
+    public static void start(Main main, String config, int port)
+            throws IOException, InterruptedException {
+        Thread thread = new Thread(() -> main.main(new String[]{config}),
+                "bench " + port);
+        thread.setDaemon(true);
+        thread.start();
+        long deadline = System.currentTimeMillis() + 30000;
+        while (true) {
+            try (Socket socket = new Socket("localhost", port)) {
+                DataLink link = DataLink.connect(socket, DataLink.BINARY);
+                Data disconnect = new Data();
+                disconnect.setOperation(JHelp.DISCONNECT);
+                link.write(disconnect);
+                return;
+            } catch (IOException ex) {
+                if (System.currentTimeMillis() > deadline || !thread.isAlive()) {
+                    throw new IOException("Server isn't started on port " + port);
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    /**
+     * Method switches off console output of servers, which print every
+     * request. The output would be larger than results of benchmarks.
+     */
+    public static void quiet() {
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    /**
+     * <code>main</code> method of server application.
+     */
+    public interface Main {
+
+        /**
+         * Starts the application.
+         *
+         * @param args command line arguments.
+         */
+        void main(String[] args);
+    }
+}
@@ -0,0 +1,580 @@
+/*
+ * Class LoadGenerator.
+ */
+package jhelp.bench;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import jhelp.ClientListener;
+import jhelp.Data;
+import jhelp.Histogram;
+import jhelp.Item;
+import jhelp.JHelp;
+import jhelp.Metrics;
+import jhelp.Server;
+import jhelp.ServerDb;
+
+/**
+ * This class is headless load generator for soak tests of the whole system.
+ * It starts {@link ServerDb} object over embedded Derby database with
+ * synthetic dictionary and {@link Server} object on loopback interface, or
+ * uses running {@link Server} object given by <code>target</code> property.
+ * Virtual users send requests through {@link ClientListener} objects, the
+ * same way as {@link jhelp.Client} form does.<br>
+ * Every user repeats cycle: waits think time (exponential distribution),
+ * chooses operation by weights of read/write mix and term by Zipf
+ * distribution, sends request and waits for response. UPDATE and DELETE
+ * requests change definitions of last term received by the user. DELETE
+ * removes only definitions added by INSERT requests, otherwise UPDATE is
+ * sent, so the dictionary keeps its size if weight of DELETE isn't less
+ * than weight of INSERT.<br>
+ * Users don't own threads, they are run by small scheduled pool, so
+ * thousands of users can share few connections (<code>connections</code>
+ * property). Every <code>interval</code> seconds the generator prints
+ * throughput, errors and latency percentiles of the interval and heap of
+ * the process: used heap, heap after last garbage collection and
+ * garbage collections. Heap after collection is the value to watch for
+ * leaks in long runs. The same values are written into CSV file. Totals of
+ * every operation are printed at the end.<br>
+ * Configuration is read from file given as first argument, default is
+ * <code>ConfigLoad.cfg</code>. Properties with prefixes <code>server.</code>
+ * and <code>serverDb.</code> are passed to configuration of started
+ * servers.
+ *
+ * @version 1.0
+ */
+public class LoadGenerator {
+
+    private static final String[] OPERATIONS = {"SELECT", "PREFIX", "SEARCH",
+        "INSERT", "UPDATE", "DELETE"};
+    private static final int[] CODES = {JHelp.SELECT, JHelp.PREFIX,
+        JHelp.SEARCH, JHelp.INSERT, JHelp.UPDATE, JHelp.DELETE};
+    private static final long MB = 1024 * 1024;
+    /**
+     * Console of the generator, servers print into muted
+     * <code>System.out</code>.
+     */
+    private final PrintStream console = System.out;
+    private Properties prop;
+    private int users = 100;
+    private int connections;
+    private long duration = 600;
+    private long rampUp = 10;
+    private long thinkTime = 1000;
+    private long timeout = 10000;
+    private long interval = 10;
+    private int terms = 10000;
+    private int definitions = 4;
+    private int length = 128;
+    private double zipf = 1;
+    private final int[] mix = {80, 8, 2, 4, 3, 3};
+    private int mixTotal;
+    private String protocol = "binary";
+    private int cacheSize = 256;
+    private boolean compression = true;
+    private String url = Fixtures.url("load");
+    private boolean seed = true;
+    private String target;
+    private String csvFile;
+    private int workers = 4;
+    private int metricsPort;
+    private boolean verbose;
+    /**
+     * Cumulative probabilities of terms, most popular term is the first.
+     */
+    private double[] popularity;
+    private final Metrics metrics = new Metrics("LoadGenerator");
+    private final Histogram[] latencies = new Histogram[OPERATIONS.length];
+    private final LongAdder[] errors = new LongAdder[OPERATIONS.length];
+    private volatile Interval current = new Interval();
+    private volatile boolean running = true;
+    private ScheduledExecutorService scheduler;
+    private ClientListener[] listeners;
+    private PrintWriter csv;
+    private long started;
+    /**
+     * Samples of heap after garbage collection since end of ramp-up, they
+     * give growth of heap by least squares.
+     */
+    private int heapSamples;
+    private double sumTime;
+    private double sumHeap;
+    private double sumTime2;
+    private double sumTimeHeap;
+    private long steadyHeap;
+    private long lastHeap;
+
+    /**
+     * Latencies of one report interval of all operations.
+     */
+    private static class Interval {
+
+        private final long start = System.nanoTime();
+        private final Histogram latency = new Histogram();
+        private final LongAdder errors = new LongAdder();
+    }
+
+    /**
+     * Virtual user. Methods of the user are called one by one: next request
+     * is scheduled after response of previous one.
+     */
+    private class User {
+
+        private final ClientListener listener;
+        private final Random random;
+        /**
+         * Last received term with its definitions.
+         */
+        private Data last;
+
+        User(int number, ClientListener listener) {
+            this.listener = listener;
+            this.random = new Random(number);
+        }
+
+        void next() {
+            long pause = (long) (-thinkTime * Math.log(1 - random.nextDouble()));
+            scheduler.schedule(this::send, pause, TimeUnit.MILLISECONDS);
+        }
+
+        void send() {
+            if (!running) {
+                return;
+            }
+            Data request = request();
+            int operation = request.getOperation();
+            int index = index(operation);
+            long start = metrics.start(operation);
+            listener.getDataAsync(request, timeout).whenComplete(
+                    (response, ex) -> {
+                        boolean error = ex != null
+                                || response.getOperation() == JHelp.ERROR;
+                        long micros = metrics.finish(operation, start, error);
+                        Interval i = current;
+                        i.latency.record(micros);
+                        latencies[index].record(micros);
+                        if (error) {
+                            i.errors.increment();
+                            errors[index].increment();
+                        } else if (response.getKey() != null
+                                && response.getKey().getId() != JHelp.ERROR
+                                && response.getValues() != null
+                                && response.getValues().length > 0
+                                && operation != JHelp.PREFIX
+                                && operation != JHelp.SEARCH) {
+                            last = response;
+                        }
+                        next();
+                    });
+        }
+
+        private Data request() {
+            String term = Fixtures.term(popular(random));
+            int operation = choose(random);
+            if ((operation == JHelp.UPDATE || operation == JHelp.DELETE)
+                    && last == null) {
+                operation = JHelp.SELECT;
+            }
+            if (operation == JHelp.DELETE
+                    && last.getValues().length <= definitions) {
+                operation = JHelp.UPDATE;
+            }
+            switch (operation) {
+                case JHelp.PREFIX:
+                    return new Data(JHelp.PREFIX, new Item(term.substring(0,
+                            5 + random.nextInt(term.length() - 4))), new Item[0]);
+                case JHelp.SEARCH:
+                    return new Data(JHelp.SEARCH, new Item(
+                            Fixtures.word(random)), new Item[0]);
+                case JHelp.INSERT:
+                    return new Data(JHelp.INSERT, new Item(term), new Item[]{
+                        new Item(Fixtures.text(random, length))});
+                case JHelp.UPDATE:
+                case JHelp.DELETE:
+                    Item key = last.getKey();
+                    Item value = last.getValue(
+                            random.nextInt(last.getValues().length));
+                    return new Data(operation, new Item(key.getId(),
+                            key.getItem(), JHelp.ORIGIN), new Item[]{
+                        operation == JHelp.UPDATE
+                                ? new Item(value.getId(), Fixtures.text(random,
+                                        length), JHelp.UPDATE)
+                                : new Item(value.getId(), value.getItem(),
+                                        JHelp.DELETE)});
+                default:
+                    return new Data(JHelp.SELECT, new Item(term), new Item[0]);
+            }
+        }
+    }
+
+    /**
+     * Creates a new instance of <code>LoadGenerator</code>.
+     */
+    public LoadGenerator() {
+        for (int i = 0; i < OPERATIONS.length; ++i) {
+            latencies[i] = new Histogram();
+            errors[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Start method of the generator. Exit code is 0 (zero) if all requests
+     * were successful.
+     *
+     * @param args path of configuration file.
+     */
+    public static void main(String[] args) {
+        LoadGenerator generator = new LoadGenerator();
+        int flag = generator.run(args);
+        System.exit(flag == JHelp.OK ? 0 : 1);
+    }
+
+    /**
+     * Method runs the load and prints its results.
+     *
+     * @param args path of configuration file.
+     * @return {@link JHelp#OK} if all requests were successful, otherwise
+     * {@link JHelp#ERROR}.
+     */
+    public int run(String[] args) {
+        getConfig(args);
+        if (!verbose) {
+            Fixtures.quiet();
+        }
+        String host = "localhost";
+        int port;
+        try {
+            if (target == null) {
+                port = startServers();
+            } else {
+                host = target.substring(0, target.lastIndexOf(':'));
+                port = Integer.parseInt(target.substring(
+                        target.lastIndexOf(':') + 1));
+            }
+            if (csvFile != null) {
+                File file = new File(csvFile);
+                if (file.getParentFile() != null) {
+                    file.getParentFile().mkdirs();
+                }
+                csv = new PrintWriter(new FileWriter(file), true);
+            }
+        } catch (IOException | SQLException | InterruptedException ex) {
+            showMessage("run(args): " + ex.getMessage());
+            return JHelp.ERROR;
+        }
+        listeners = new ClientListener[connections > 0
+                ? Math.min(connections, users) : users];
+        for (int i = 0; i < listeners.length; ++i) {
+            listeners[i] = new ClientListener(null);
+            if (listeners[i].connect(host, port, protocol, cacheSize,
+                    compression) != JHelp.OK) {
+                showMessage("run(args): connection " + i + " isn't opened");
+                return JHelp.ERROR;
+            }
+        }
+        popularity = zipf(terms, zipf);
+        scheduler = Executors.newScheduledThreadPool(workers, r -> {
+            Thread t = new Thread(r, "LoadGenerator");
+            t.setDaemon(true);
+            return t;
+        });
+        metrics.register();
+        if (metricsPort > 0) {
+            metrics.serve(metricsPort);
+        }
+        console.println("LOAD: " + users + " users over " + listeners.length
+                + " connections to " + host + ":" + port + " for " + duration
+                + " s");
+        header();
+        started = System.nanoTime();
+        current = new Interval();
+        for (int i = 0; i < users; ++i) {
+            User user = new User(i, listeners[i % listeners.length]);
+            scheduler.schedule(user::send, rampUp * 1000 * i / users,
+                    TimeUnit.MILLISECONDS);
+        }
+        scheduler.scheduleAtFixedRate(this::report, interval, interval,
+                TimeUnit.SECONDS);
+        try {
+            Thread.sleep(duration * 1000);
+            running = false;
+            /*responses of sent requests are waited*/
+            long deadline = System.currentTimeMillis() + timeout + 1000;
+            while (metrics.getInFlight() > 0
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        } catch (InterruptedException ex) {
+            running = false;
+            Thread.currentThread().interrupt();
+        }
+        scheduler.shutdownNow();
+        report();
+        summary();
+        for (ClientListener listener : listeners) {
+            listener.disconnect();
+        }
+        if (csv != null) {
+            csv.close();
+        }
+        metrics.close();
+        return metrics.getErrors() == 0 ? JHelp.OK : JHelp.ERROR;
+    }
+
+    /**
+     * Method creates the dictionary and starts {@link ServerDb} and
+     * {@link Server} objects.
+     *
+     * @return port of {@link Server} object.
+     */
+    private int startServers() throws IOException, SQLException,
+            InterruptedException {
+        if (seed) {
+            console.println("LOAD: seeding " + terms + " terms with "
+                    + definitions + " definitions");
+            Fixtures.dictionary(url, terms, definitions, length);
+        }
+        int dbPort = Fixtures.freePort();
+        Properties db = Fixtures.serverDbConfig(url, dbPort);
+        db.setProperty("termIndex", "true");
+        db.putAll(section("serverDb."));
+        Fixtures.start(ServerDb::main, Fixtures.config(db), dbPort);
+        int port = Fixtures.freePort();
+        Properties relay = new Properties();
+        relay.setProperty("port", String.valueOf(port));
+        relay.setProperty("dbHost", "localhost");
+        relay.setProperty("dbPort", String.valueOf(dbPort));
+        relay.putAll(section("server."));
+        Fixtures.start(Server::main, Fixtures.config(relay), port);
+        return port;
+    }
+
+    /**
+     * Method returns cumulative probabilities of Zipf distribution.
+     *
+     * @param n number of values.
+     * @param exponent exponent of the distribution, 0 (zero) gives uniform
+     * distribution.
+     * @return array of cumulative probabilities.
+     */
+    private static double[] zipf(int n, double exponent) {
+        double[] p = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; ++i) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            p[i] = sum;
+        }
+        for (int i = 0; i < n; ++i) {
+            p[i] /= sum;
+        }
+        return p;
+    }
+
+    /**
+     * Method returns number of random term, from 1 to <code>terms</code>.
+     */
+    private int popular(Random random) {
+        int i = Arrays.binarySearch(popularity, random.nextDouble());
+        return Math.min(i < 0 ? -i - 1 : i, popularity.length - 1) + 1;
+    }
+
+    /**
+     * Method returns random operation by weights of the mix.
+     */
+    private int choose(Random random) {
+        int r = random.nextInt(mixTotal);
+        for (int i = 0; i < mix.length; ++i) {
+            r -= mix[i];
+            if (r < 0) {
+                return CODES[i];
+            }
+        }
+        return JHelp.SELECT;
+    }
+
+    private static int index(int operation) {
+        for (int i = 0; i < CODES.length; ++i) {
+            if (CODES[i] == operation) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private void header() {
+        String columns = "seconds,requests,throughput,errors,p50,p90,p99,"
+                + "p999,max,heapMB,heapAfterGcMB,gcCount,gcMs";
+        console.println("LOAD: " + columns.replace(',', ' '));
+        if (csv != null) {
+            csv.println(columns);
+        }
+    }
+
+    /**
+     * Method prints results of the interval and starts next interval.
+     */
+    private void report() {
+        Interval i = current;
+        current = new Interval();
+        long now = System.nanoTime();
+        long seconds = (now - started) / 1000000000;
+        long count = i.latency.getCount();
+        long throughput = count * 1000000000 / Math.max(now - i.start, 1);
+        long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage()
+                .getUsed();
+        long afterGc = heapAfterGc();
+        long gcCount = 0;
+        long gcTime = 0;
+        for (GarbageCollectorMXBean gc
+                : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(gc.getCollectionCount(), 0);
+            gcTime += Math.max(gc.getCollectionTime(), 0);
+        }
+        if (seconds > rampUp && afterGc > 0) {
+            if (heapSamples++ == 0) {
+                steadyHeap = afterGc;
+            }
+            double hours = seconds / 3600.0;
+            double mb = afterGc / (double) MB;
+            sumTime += hours;
+            sumHeap += mb;
+            sumTime2 += hours * hours;
+            sumTimeHeap += hours * mb;
+            lastHeap = afterGc;
+        }
+        String line = seconds + "," + count + "," + throughput + ","
+                + i.errors.sum() + "," + i.latency.getPercentile(50) + ","
+                + i.latency.getPercentile(90) + ","
+                + i.latency.getPercentile(99) + ","
+                + i.latency.getPercentile(99.9) + "," + i.latency.getMax()
+                + "," + heap / MB + "," + afterGc / MB + "," + gcCount + ","
+                + gcTime;
+        console.println("LOAD: " + line.replace(',', ' '));
+        if (csv != null) {
+            csv.println(line);
+        }
+    }
+
+    /**
+     * Method returns used heap after last garbage collection of every heap
+     * pool.
+     */
+    private static long heapAfterGc() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return used;
+    }
+
+    private void summary() {
+        double seconds = (System.nanoTime() - started) / 1e9;
+        console.println(String.format("LOAD: %d requests in %.0f s, %.1f "
+                + "requests/s, %d errors", metrics.getRequests(), seconds,
+                metrics.getRequests() / seconds, metrics.getErrors()));
+        for (int i = 0; i < OPERATIONS.length; ++i) {
+            if (latencies[i].getCount() > 0) {
+                console.println("LOAD: " + OPERATIONS[i] + " errors="
+                        + errors[i].sum() + " " + latencies[i] + " us");
+            }
+        }
+        if (heapSamples > 1) {
+            double slope = (heapSamples * sumTimeHeap - sumTime * sumHeap)
+                    / (heapSamples * sumTime2 - sumTime * sumTime);
+            console.println(String.format("LOAD: heap after GC %d MB after "
+                    + "ramp-up, %d MB at end, trend %.1f MB/h by %d samples",
+                    steadyHeap / MB, lastHeap / MB, slope, heapSamples));
+        }
+    }
+
+    private Properties section(String prefix) {
+        Properties section = new Properties();
+        for (String name : prop.stringPropertyNames()) {
+            if (name.startsWith(prefix)) {
+                section.setProperty(name.substring(prefix.length()),
+                        prop.getProperty(name));
+            }
+        }
+        return section;
+    }
+
+    private long getLong(String name, long value) {
+        String sp = prop.getProperty(name);
+        return sp != null && sp.trim().matches("\\d++")
+                ? Long.valueOf(sp.trim()) : value;
+    }
+
+    private int getInt(String name, int value) {
+        return (int) getLong(name, value);
+    }
+
+    private void getConfig(String[] args) {
+        String configPath = args.length > 0 ? args[0] : "ConfigLoad.cfg";
+        prop = new Properties();
+        try (FileReader fr = new FileReader(configPath)) {
+            prop.load(fr);
+        } catch (FileNotFoundException ex) {
+            showMessage("getConfig(args): " + ex.getMessage());
+        } catch (IOException ex) {
+            showMessage("getConfig(args): " + ex.getMessage());
+        }
+        users = Math.max(1, getInt("users", users));
+        connections = getInt("connections", connections);
+        duration = getLong("duration", duration);
+        rampUp = getLong("rampUp", rampUp);
+        thinkTime = getLong("thinkTime", thinkTime);
+        timeout = getLong("timeout", timeout);
+        interval = Math.max(1, getLong("interval", interval));
+        terms = Math.max(1, getInt("terms", terms));
+        definitions = Math.max(1, getInt("definitions", definitions));
+        length = Math.max(1, getInt("length", length));
+        String sp = prop.getProperty("zipf");
+        if (sp != null && sp.trim().matches("\\d*+\\.?\\d++")) {
+            zipf = Double.parseDouble(sp.trim());
+        }
+        mixTotal = 0;
+        for (int i = 0; i < OPERATIONS.length; ++i) {
+            mix[i] = getInt(OPERATIONS[i].toLowerCase(), mix[i]);
+            mixTotal += mix[i];
+        }
+        if (mixTotal == 0) {
+            mix[0] = mixTotal = 1;
+        }
+        protocol = prop.getProperty("protocol", protocol).trim();
+        cacheSize = getInt("cacheSize", cacheSize);
+        compression = Boolean.parseBoolean(prop.getProperty("compression",
+                "true"));
+        url = prop.getProperty("url", url);
+        seed = Boolean.parseBoolean(prop.getProperty("seed", "true"));
+        target = prop.getProperty("target");
+        csvFile = prop.getProperty("csv");
+        workers = Math.max(1, getInt("workers", workers));
+        metricsPort = getInt("metricsPort", metricsPort);
+        verbose = Boolean.parseBoolean(prop.getProperty("verbose"));
+    }
+
+    private void showMessage(String msg) {
+        console.println("LoadGeneratorError: " + msg);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Class RelayBenchmark.
+ */
+package jhelp.bench;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import jhelp.Data;
+import jhelp.DataLink;
+import jhelp.Item;
+import jhelp.JHelp;
+import jhelp.Server;
+import jhelp.ServerDb;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of SELECT request passed by client through {@link Server} to
+ * {@link ServerDb} object over loopback sockets. {@link ServerDb} object
+ * serves the requests from term index, so the benchmark measures relay loop
+ * and both network hops, not the database. Run it with <code>-t</code>
+ * option of JMH to measure concurrent clients.
+ *
+ * @version 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelayBenchmark {
+
+    /**
+     * Number of terms of the dictionary.
+     */
+    public static final int TERMS = 1000;
+
+    /**
+     * Running {@link ServerDb} and {@link Server} objects, shared by all
+     * threads of the benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class Relay {
+
+        /**
+         * Protocol of client and of {@link Server} object.
+         */
+        @Param({"binary", "object"})
+        public String protocol;
+        /**
+         * Size of cache of {@link Server} object, 0 (zero) passes every
+         * request to {@link ServerDb} object.
+         */
+        @Param({"0", "10000"})
+        public int cacheSize;
+        private int port;
+
+        /**
+         * Method creates the database and starts both servers.
+         *
+         * @throws IOException if a server isn't started.
+         * @throws SQLException if the database can't be created.
+         * @throws InterruptedException if waiting is interrupted.
+         */
+        @Setup
+        public void setup() throws IOException, SQLException,
+                InterruptedException {
+            Fixtures.quiet();
+            String url = Fixtures.url("relay");
+            Fixtures.dictionary(url, TERMS, 8, 128);
+            int dbPort = Fixtures.freePort();
+            Properties db = Fixtures.serverDbConfig(url, dbPort);
+            db.setProperty("termIndex", "true");
+            Fixtures.start(ServerDb::main, Fixtures.config(db), dbPort);
+            port = Fixtures.freePort();
+            Properties relay = new Properties();
+            relay.setProperty("port", String.valueOf(port));
+            relay.setProperty("dbHost", "localhost");
+            relay.setProperty("dbPort", String.valueOf(dbPort));
+            relay.setProperty("dbProtocol", protocol);
+            relay.setProperty("cacheSize", String.valueOf(cacheSize));
+            Fixtures.start(Server::main, Fixtures.config(relay), port);
+        }
+    }
+
+    /**
+     * Connection of one client thread.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+
+        private DataLink link;
+
+        /**
+         * Method connects the client to {@link Server} object.
+         *
+         * @param relay running servers.
+         * @throws IOException if the client can't connect.
+         */
+        @Setup
+        public void setup(Relay relay) throws IOException {
+            link = DataLink.connect(new Socket("localhost", relay.port),
+                    relay.protocol);
+        }
+
+        /**
+         * Method disconnects the client.
+         *
+         * @throws IOException if the connection can't be closed.
+         */
+        @TearDown
+        public void tearDown() throws IOException {
+            Data disconnect = new Data();
+            disconnect.setOperation(JHelp.DISCONNECT);
+            link.write(disconnect);
+            link.close();
+        }
+    }
+
+    /**
+     * SELECT request of random term and its response.
+     *
+     * @param client connection of the thread.
+     * @return the response.
+     * @throws IOException if the connection fails.
+     */
+    @Benchmark
+    public Data select(Client client) throws IOException {
+        client.link.write(new Data(JHelp.SELECT, new Item(Fixtures.term(
+                ThreadLocalRandom.current().nextInt(TERMS) + 1)), null));
+        Data response = client.link.read();
+        if (response.getOperation() == JHelp.ERROR) {
+            throw new IllegalStateException("SELECT failed");
+        }
+        return response;
+    }
+}
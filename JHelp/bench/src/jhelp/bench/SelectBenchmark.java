@@ -0,0 +1,106 @@
+/*
+ * Class SelectBenchmark.
+ */
+package jhelp.bench;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import jhelp.Data;
+import jhelp.Item;
+import jhelp.JHelp;
+import jhelp.ServerDb;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of SELECT request of {@link ServerDb} object against embedded
+ * Derby database. Term index is switched off, so every request reads the
+ * database: whole term is read by <code>setData</code> method, page of the
+ * term is read by keyset query.
+ *
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SelectBenchmark {
+
+    /**
+     * Number of terms of the dictionary.
+     */
+    public static final int TERMS = 2000;
+    /**
+     * Number of definitions of every term.
+     */
+    @Param({"1", "16", "256"})
+    public int definitionsPerTerm;
+    /**
+     * Page size of request, 0 (zero) requests whole term.
+     */
+    @Param({"0", "20"})
+    public int limit;
+    private ServerDb server;
+    private int terms;
+
+    /**
+     * Method creates the database and connects {@link ServerDb} object.
+     *
+     * @throws IOException if configuration can't be written.
+     * @throws SQLException if the database can't be created.
+     */
+    @Setup
+    public void setup() throws IOException, SQLException {
+        Fixtures.quiet();
+        /*every trial has own database, large terms make the dictionary
+        smaller to keep time of setup*/
+        terms = TERMS / Math.max(1, definitionsPerTerm / 16);
+        String url = Fixtures.url("select" + definitionsPerTerm + "_" + limit);
+        Fixtures.dictionary(url, terms, definitionsPerTerm, 128);
+        server = new ServerDb();
+        String config = Fixtures.config(
+                Fixtures.serverDbConfig(url, Fixtures.freePort()));
+        if (server.connect(new String[]{config}) != JHelp.READY) {
+            throw new IllegalStateException("ServerDb isn't connected");
+        }
+    }
+
+    /**
+     * Method disconnects {@link ServerDb} object.
+     */
+    @TearDown
+    public void tearDown() {
+        server.disconnect();
+    }
+
+    /**
+     * SELECT request of random term.
+     *
+     * @return the response.
+     */
+    @Benchmark
+    public Data select() {
+        Data request = new Data(JHelp.SELECT, new Item(Fixtures.term(
+                ThreadLocalRandom.current().nextInt(terms) + 1)), null);
+        request.setLimit(limit);
+        Data response = server.getData(request);
+        if (response.getOperation() == JHelp.ERROR) {
+            throw new IllegalStateException("SELECT failed");
+        }
+        return response;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Class BinaryDataLink.
+ */
+package jhelp;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.net.Socket;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class transfers {@link Data} objects as binary frames. Every frame
+ * consists of <code>int</code> length, <code>byte</code> flags and binary form
+ * of <code>Data</code> object written by {@link DataCodec}. Length counts
+ * flags and binary form. Flags are negotiated capabilities used by the frame.
+ * If flag {@link DataLink#COMPRESSION} is set, the flags are followed by
+ * <code>int</code> length of binary form and compressed binary form (see
+ * {@link Compressor}).
+ *
+ * @version 1.0
+ * @see jhelp.DataLink
+ * @see jhelp.DataCodec
+ */
+public class BinaryDataLink implements DataLink {
+
+    /**
+     * Maximal length of frame.
+     */
+    public static final int MAX_FRAME = 16 << 20;
+    private final Socket socket;
+    /**
+     * Lock of writers.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final DataInputStream input;
+    private final DataOutputStream output;
+    private final int capabilities;
+    private final DataCodec encoder = new DataCodec();
+    private final DataCodec decoder = new DataCodec();
+    /**
+     * Compressor of the link or <code>null</code> if compression isn't
+     * negotiated.
+     */
+    private final Compressor compressor;
+    private byte[] frame = new byte[512];
+
+    /**
+     * Creates a new instance of <code>BinaryDataLink</code> after successful
+     * negotiation.
+     *
+     * @param socket connected socket.
+     * @param input buffered input stream of the socket.
+     * @param output buffered output stream of the socket.
+     * @param capabilities capabilities supported by both sides.
+     */
+    public BinaryDataLink(Socket socket, DataInputStream input,
+            DataOutputStream output, int capabilities) {
+        this.socket = socket;
+        this.input = input;
+        this.output = output;
+        this.capabilities = capabilities;
+        compressor = (capabilities & COMPRESSION) != 0 ? new Compressor() : null;
+    }
+
+    @Override
+    public Data read() throws IOException {
+        int length = input.readInt();
+        if (length < 1 || length > MAX_FRAME) {
+            throw new StreamCorruptedException("Invalid frame length: " + length);
+        }
+        int flags = input.readUnsignedByte();
+        if ((flags & ~capabilities) != 0) {
+            throw new StreamCorruptedException("Invalid frame flags: " + flags);
+        }
+        --length;
+        int rawLength = -1;
+        if ((flags & COMPRESSION) != 0) {
+            if (length < 4) {
+                throw new StreamCorruptedException("Invalid frame length: " + length);
+            }
+            rawLength = input.readInt();
+            length -= 4;
+        }
+        if (frame.length < length) {
+            frame = new byte[Math.max(length, frame.length * 2)];
+        }
+        input.readFully(frame, 0, length);
+        if (rawLength >= 0) {
+            return decoder.decode(compressor.inflate(frame, 0, length, rawLength),
+                    0, rawLength);
+        }
+        return decoder.decode(frame, 0, length);
+    }
+
+    @Override
+    public void write(Data data) throws IOException {
+        writeLock.lock();
+        try {
+            int length = encoder.encode(data);
+            int compressed = compressor == null ? -1
+                    : compressor.deflate(encoder.buffer(), length);
+            if (compressed < 0) {
+                output.writeInt(length + 1);
+                output.writeByte(0);
+                output.write(encoder.buffer(), 0, length);
+            } else {
+                output.writeInt(compressed + 5);
+                output.writeByte(COMPRESSION);
+                output.writeInt(length);
+                output.write(compressor.deflated(), 0, compressed);
+            }
+            output.flush();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Method closes the socket and frees native memory of compressor. If
+     * reader thread decompresses a frame, the memory is freed after the
+     * frame.
+     *
+     * @throws IOException if the socket can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            socket.close();
+        } finally {
+            if (compressor != null) {
+                compressor.close();
+            }
+        }
+    }
+}
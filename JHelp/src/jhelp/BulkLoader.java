@@ -0,0 +1,600 @@
+/*
+ * Class BulkLoader.
+ */
+package jhelp;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This class loads dictionary from text file into database and dumps
+ * dictionary from database into text file. It works with database directly,
+ * without {@link jhelp.ServerDb} object, so {@link jhelp.ServerDb} object
+ * must be restarted after import to reload its in-memory indexes.<br>
+ * Every line of the file is pair term - definition. Two formats are
+ * supported: TSV (term, tab, definition; tab, new line and back slash are
+ * written as <code>\t</code>, <code>\n</code> and <code>\\</code>) and CSV
+ * (two fields separated by comma, fields with comma, quote or new line are
+ * quoted).<br>
+ * Import reads the file by one thread, parses it by several threads and
+ * writes it by one database connection with JDBC batches and periodic
+ * commits. Queues between the threads are bounded, so memory doesn't depend
+ * on file size, only identificators of terms are kept in memory. New
+ * definitions of existing terms are added to the terms.<br>
+ * Usage:<br>
+ * <code>java jhelp.BulkLoader import|export &lt;file&gt; [options]</code><br>
+ * Options: <code>--config=ConfigServerDb.cfg</code>,
+ * <code>--format=tsv|csv</code>, <code>--batch=1000</code> (rows per JDBC
+ * batch), <code>--commit=50000</code> (rows per transaction),
+ * <code>--threads=N</code> (parser threads), <code>--index</code> (create
+ * database indexes after import).
+ *
+ * @version 1.0
+ * @see jhelp.ServerDb
+ */
+public class BulkLoader {
+
+    /**
+     * Number of lines passed between threads at once.
+     */
+    private static final int CHUNK_SIZE = 1000;
+    /**
+     * Interval of progress messages in milliseconds.
+     */
+    private static final long PROGRESS_INTERVAL = 2000;
+    /**
+     * Maximal length of CSV record which spans several lines. Record with
+     * quote which isn't closed in this length is skipped.
+     */
+    private static final int MAX_RECORD = 16384;
+    private static final String TERMS_SQL = "SELECT ID, TERM FROM TBLTERMS";
+    private static final String INSERT_TERM_SQL
+            = "INSERT INTO TBLTERMS VALUES (?, ?)";
+    private static final String INSERT_DEFINITION_SQL
+            = "INSERT INTO TBLDEFINITIONS VALUES (?, ?, ?)";
+    private static final String EXPORT_SQL
+            = "SELECT TERM, DEFINITION FROM TBLTERMS JOIN TBLDEFINITIONS "
+            + "ON TBLTERMS.ID = TBLDEFINITIONS.TERM_ID "
+            + "ORDER BY TBLTERMS.ID, TBLDEFINITIONS.ID";
+    private static final String[] INDEX_SQL = {
+        "CREATE INDEX TBLTERMS_TERM ON TBLTERMS (TERM)"
+    };
+
+    /**
+     * Lines of file and their parsed records.
+     */
+    private static class Chunk {
+
+        private final ArrayList<String> lines;
+        private final ArrayList<String[]> records = new ArrayList<>();
+        private int bad;
+
+        Chunk(ArrayList<String> lines) {
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * End of file mark.
+     */
+    private static final Chunk END = new Chunk(null);
+
+    private ConnectionPool pool;
+    private boolean csv;
+    private int batchSize = 1000;
+    private int commitSize = 50000;
+    private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private boolean createIndexes;
+    private int idBlock = 1000;
+    private boolean idSequence = true;
+    private volatile Exception failure;
+
+    /**
+     * Creates a new instance of <code>BulkLoader</code>.
+     *
+     * @param args command line options.
+     * @throws SQLException if database url is wrong.
+     */
+    public BulkLoader(String[] args) throws SQLException {
+        String config = "ConfigServerDb.cfg";
+        for (String arg : args) {
+            if (arg.startsWith("--config=")) {
+                config = arg.substring(9);
+            } else if (arg.equals("--format=csv")) {
+                csv = true;
+            } else if (arg.equals("--index")) {
+                createIndexes = true;
+            } else if (arg.matches("--batch=\\d++")) {
+                batchSize = Math.max(1, Integer.valueOf(arg.substring(8)));
+            } else if (arg.matches("--commit=\\d++")) {
+                commitSize = Math.max(1, Integer.valueOf(arg.substring(9)));
+            } else if (arg.matches("--threads=\\d++")) {
+                threads = Math.max(1, Integer.valueOf(arg.substring(10)));
+            }
+        }
+        getConfig(config);
+    }
+
+    /**
+     * Starts import or export.
+     *
+     * @param args mode, file name and options.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2 || !args[0].matches("import|export")) {
+            System.out.println("Usage: java jhelp.BulkLoader import|export <file>"
+                    + " [--config=ConfigServerDb.cfg] [--format=tsv|csv]"
+                    + " [--batch=1000] [--commit=50000] [--threads=N] [--index]");
+            return;
+        }
+        BulkLoader loader = null;
+        try {
+            loader = new BulkLoader(args);
+            if (args[0].equals("import")) {
+                loader.importFile(new File(args[1]));
+            } else {
+                loader.exportFile(new File(args[1]));
+            }
+        } catch (IOException | SQLException | InterruptedException ex) {
+            System.out.println("BulkLoaderError: main(): " + ex.getMessage());
+        } finally {
+            if (loader != null) {
+                loader.pool.close();
+            }
+        }
+    }
+
+    private void getConfig(String configPath) throws SQLException {
+        Properties prop = new Properties();
+        try (FileReader fr = new FileReader(configPath)) {
+            prop.load(fr);
+        } catch (FileNotFoundException ex) {
+            showMessage("getConfig(): " + ex.getMessage());
+        } catch (IOException ex) {
+            showMessage("getConfig(): " + ex.getMessage());
+        }
+        String port = prop.getProperty("port", "1527");
+        String url = prop.getProperty("dbHost") + ":" + port + "/"
+                + prop.getProperty("dbName");
+        String sp = prop.getProperty("idBlock");
+        if (sp != null && sp.matches("\\d++") && Integer.valueOf(sp) > 0) {
+            idBlock = Integer.valueOf(sp);
+        }
+        idSequence = !"max".equals(prop.getProperty("idSource"));
+        pool = new ConnectionPool(url, prop.getProperty("user"),
+                prop.getProperty("password"), 0, 1, 5000, 60000);
+    }
+
+    /**
+     * Method loads the file into database.
+     *
+     * @param file TSV or CSV file.
+     * @return number of loaded definitions.
+     * @throws IOException if the file can't be read.
+     * @throws SQLException if database error occurs. Rows committed before
+     * the error stay in database.
+     * @throws InterruptedException if the thread is interrupted.
+     */
+    public long importFile(File file) throws IOException, SQLException,
+            InterruptedException {
+        BlockingQueue<Chunk> read = new ArrayBlockingQueue<>(threads * 2);
+        BlockingQueue<Chunk> parsed = new ArrayBlockingQueue<>(threads * 2);
+        Thread[] parsers = new Thread[threads];
+        for (int i = 0; i < threads; ++i) {
+            parsers[i] = new Thread(() -> parse(read, parsed), "parser-" + i);
+            parsers[i].setDaemon(true);
+            parsers[i].start();
+        }
+        long[] result = new long[1];
+        Thread writer = new Thread(() -> {
+            try {
+                result[0] = write(parsed);
+            } catch (SQLException | InterruptedException ex) {
+                failure = ex;
+            }
+        }, "writer");
+        writer.start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            ArrayList<String> lines = new ArrayList<>(CHUNK_SIZE);
+            String line;
+            long number = 0;
+            while ((line = reader.readLine()) != null && failure == null) {
+                ++number;
+                /*quoted CSV field can contain new lines*/
+                int quotes = csv ? quotes(line) : 0;
+                if (quotes % 2 != 0) {
+                    long first = number;
+                    StringBuilder record = new StringBuilder(line);
+                    String next;
+                    while (quotes % 2 != 0 && record.length() <= MAX_RECORD
+                            && (next = reader.readLine()) != null) {
+                        ++number;
+                        quotes += quotes(next);
+                        record.append('\n').append(next);
+                    }
+                    if (quotes % 2 != 0) {
+                        showMessage("importFile(): quote of line " + first
+                                + " isn't closed, lines " + first + "-" + number
+                                + " are skipped");
+                        continue;
+                    }
+                    line = record.toString();
+                }
+                lines.add(line);
+                if (lines.size() == CHUNK_SIZE) {
+                    read.put(new Chunk(lines));
+                    lines = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!lines.isEmpty()) {
+                read.put(new Chunk(lines));
+            }
+        } finally {
+            read.put(END);
+            writer.join();
+        }
+        if (failure != null) {
+            if (failure instanceof SQLException) {
+                throw (SQLException) failure;
+            }
+            throw new IOException(failure);
+        }
+        if (createIndexes) {
+            createIndexes();
+        }
+        return result[0];
+    }
+
+    /**
+     * Job cycle of parser thread.
+     */
+    private void parse(BlockingQueue<Chunk> read, BlockingQueue<Chunk> parsed) {
+        try {
+            while (true) {
+                Chunk chunk = read.take();
+                if (chunk == END) {
+                    /*for other parsers*/
+                    read.put(END);
+                    parsed.put(END);
+                    return;
+                }
+                for (String line : chunk.lines) {
+                    String[] record = csv ? parseCsv(line) : parseTsv(line);
+                    if (record == null) {
+                        ++chunk.bad;
+                    } else {
+                        chunk.records.add(record);
+                    }
+                }
+                parsed.put(chunk);
+            }
+        } catch (InterruptedException ex) {
+            failure = ex;
+        }
+    }
+
+    /**
+     * Job cycle of writer thread.
+     *
+     * @return number of loaded definitions.
+     */
+    private long write(BlockingQueue<Chunk> parsed) throws SQLException,
+            InterruptedException {
+        long rows = 0;
+        long terms = 0;
+        long bad = 0;
+        long start = System.currentTimeMillis();
+        long report = start + PROGRESS_INTERVAL;
+        int ends = 0;
+        try (DbConnection con = pool.borrow()) {
+            Connection c = con.getConnection();
+            HashMap<String, Integer> ids = loadTerms(con);
+            IdAllocator termIds = new IdAllocator("TBLTERMS", idBlock, idSequence);
+            IdAllocator definitionIds = new IdAllocator("TBLDEFINITIONS",
+                    idBlock, idSequence);
+            c.setAutoCommit(false);
+            PreparedStatement insertTerm = con.prepare(INSERT_TERM_SQL);
+            PreparedStatement insertDefinition = con.prepare(INSERT_DEFINITION_SQL);
+            int batched = 0;
+            int uncommitted = 0;
+            try {
+                while (ends < threads) {
+                    Chunk chunk = parsed.take();
+                    if (chunk == END) {
+                        ++ends;
+                        continue;
+                    }
+                    bad += chunk.bad;
+                    for (String[] record : chunk.records) {
+                        Integer idTerm = ids.get(record[0]);
+                        if (idTerm == null) {
+                            idTerm = termIds.next(con);
+                            ids.put(record[0], idTerm);
+                            insertTerm.setInt(1, idTerm);
+                            insertTerm.setString(2, record[0]);
+                            insertTerm.addBatch();
+                            ++terms;
+                        }
+                        insertDefinition.setInt(1, definitionIds.next(con));
+                        insertDefinition.setString(2, record[1]);
+                        insertDefinition.setInt(3, idTerm);
+                        insertDefinition.addBatch();
+                        ++rows;
+                        if (++batched == batchSize) {
+                            /*terms before their definitions*/
+                            insertTerm.executeBatch();
+                            insertDefinition.executeBatch();
+                            batched = 0;
+                        }
+                        if (++uncommitted == commitSize) {
+                            insertTerm.executeBatch();
+                            insertDefinition.executeBatch();
+                            c.commit();
+                            batched = 0;
+                            uncommitted = 0;
+                        }
+                    }
+                    long now = System.currentTimeMillis();
+                    if (now >= report) {
+                        progress("imported", rows, terms, start);
+                        report = now + PROGRESS_INTERVAL;
+                    }
+                }
+                insertTerm.executeBatch();
+                insertDefinition.executeBatch();
+                c.commit();
+            } catch (SQLException ex) {
+                c.rollback();
+                throw ex.getNextException() == null ? ex : ex.getNextException();
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException | InterruptedException ex) {
+            /*reader stops at once, not at the end of file*/
+            failure = ex;
+            throw ex;
+        } finally {
+            /*after error let parsers and reader finish*/
+            while (ends < threads) {
+                if (parsed.take() == END) {
+                    ++ends;
+                }
+            }
+        }
+        progress("imported", rows, terms, start);
+        if (bad > 0) {
+            showMessage("write(): " + bad + " invalid lines are skipped");
+        }
+        System.out.println("BulkLoader: restart ServerDb to reload its indexes");
+        return rows;
+    }
+
+    private HashMap<String, Integer> loadTerms(DbConnection con)
+            throws SQLException {
+        HashMap<String, Integer> ids = new HashMap<>();
+        try (ResultSet rs = con.prepare(TERMS_SQL).executeQuery()) {
+            while (rs.next()) {
+                ids.putIfAbsent(rs.getString(2), rs.getInt(1));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Method creates database indexes which speed up search of terms.
+     * Existing indexes are kept.
+     */
+    private void createIndexes() throws SQLException {
+        long start = System.currentTimeMillis();
+        try (DbConnection con = pool.borrow();
+                Statement st = con.getConnection().createStatement()) {
+            for (String sql : INDEX_SQL) {
+                try {
+                    st.executeUpdate(sql);
+                } catch (SQLException ex) {
+                    showMessage("createIndexes(): " + ex.getMessage());
+                }
+            }
+        }
+        System.out.println("BulkLoader: indexes are created in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Method dumps whole dictionary into the file.
+     *
+     * @param file TSV or CSV file.
+     * @return number of written definitions.
+     * @throws IOException if the file can't be written.
+     * @throws SQLException if database error occurs.
+     */
+    public long exportFile(File file) throws IOException, SQLException {
+        long rows = 0;
+        long start = System.currentTimeMillis();
+        long report = start + PROGRESS_INTERVAL;
+        try (DbConnection con = pool.borrow();
+                BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            PreparedStatement ps = con.prepare(EXPORT_SQL);
+            ps.setFetchSize(CHUNK_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String term = rs.getString(1);
+                    String definition = rs.getString(2);
+                    writer.write(csv ? formatCsv(term, definition)
+                            : formatTsv(term, definition));
+                    writer.newLine();
+                    if ((++rows % CHUNK_SIZE) == 0
+                            && System.currentTimeMillis() >= report) {
+                        progress("exported", rows, -1, start);
+                        report = System.currentTimeMillis() + PROGRESS_INTERVAL;
+                    }
+                }
+            }
+        }
+        progress("exported", rows, -1, start);
+        return rows;
+    }
+
+    private void progress(String action, long rows, long terms, long start) {
+        long ms = Math.max(1, System.currentTimeMillis() - start);
+        System.out.println("BulkLoader: " + action + " " + rows + " definitions"
+                + (terms >= 0 ? ", " + terms + " new terms" : "") + " in "
+                + ms + " ms, " + rows * 1000 / ms + " rows/s");
+    }
+
+    /**
+     * Method parses TSV line.
+     *
+     * @param line line of file.
+     * @return term and definition or <code>null</code> if the line is invalid.
+     */
+    static String[] parseTsv(String line) {
+        int tab = line.indexOf('\t');
+        if (tab < 0) {
+            return null;
+        }
+        return record(unescape(line.substring(0, tab)),
+                unescape(line.substring(tab + 1)));
+    }
+
+    /**
+     * Method parses CSV line.
+     *
+     * @param line line of file, it can contain new lines inside quotes.
+     * @return term and definition or <code>null</code> if the line is invalid.
+     */
+    static String[] parseCsv(String line) {
+        ArrayList<String> fields = new ArrayList<>(2);
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); ++i) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    sb.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    sb.append('"');
+                    ++i;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+        fields.add(sb.toString());
+        if (quoted || fields.size() != 2) {
+            return null;
+        }
+        return record(fields.get(0), fields.get(1));
+    }
+
+    private static String[] record(String term, String definition) {
+        term = TermCache.normalize(term);
+        if (term.isEmpty() || definition.isEmpty()) {
+            return null;
+        }
+        return new String[]{term, definition};
+    }
+
+    /**
+     * Method counts quotes of CSV line. Quotes of the line are closed if the
+     * number is even.
+     */
+    private static int quotes(String line) {
+        int quotes = 0;
+        for (int i = 0; i < line.length(); ++i) {
+            if (line.charAt(i) == '"') {
+                ++quotes;
+            }
+        }
+        return quotes;
+    }
+
+    static String formatTsv(String term, String definition) {
+        return escape(term) + '\t' + escape(definition);
+    }
+
+    static String formatCsv(String term, String definition) {
+        return quote(term) + ',' + quote(definition);
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String s) {
+        if (s.indexOf('\\') < 0) {
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                c = s.charAt(++i);
+                sb.append(c == 't' ? '\t' : c == 'n' ? '\n' : c == 'r' ? '\r' : c);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String quote(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0
+                && s.indexOf('\r') < 0) {
+            return s;
+        }
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    private void showMessage(String msg) {
+        System.out.println("BulkLoaderError: " + msg);
+    }
+}
@@ -11,16 +11,24 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
+import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 
 /**
@@ -36,10 +44,63 @@ public class Client extends JFrame implements JHelp {
     private JTextArea definition;
     private JLabel labelDef, labelTerm;
     private JScrollPane scroll;
+    /**
+     * Popup menu with terms which start with typed text.
+     */
+    private JPopupMenu suggestions;
+    /**
+     * Timer delays request of suggestions until user stops typing.
+     */
+    private Timer suggestTimer;
+    /**
+     * Number of last request of suggestions. Responses of previous requests
+     * are ignored.
+     */
+    private final AtomicLong suggestNumber = new AtomicLong();
+    /**
+     * Request of suggestions in flight. It is cancelled by next request.
+     */
+    private CompletableFuture<Data> suggestion;
+    /**
+     * Number of last request of buttons. Responses of previous requests are
+     * not displayed.
+     */
+    private long requestNumber;
+    /**
+     * SELECT request in flight. It is cancelled by next request or by Escape
+     * key. Changes are never cancelled, because they can be already done.
+     */
+    private CompletableFuture<Data> lookup;
+    /**
+     * Maximal time of waiting for response in milliseconds.
+     */
+    private long timeout = 10000;
+    /**
+     * Maximal number of terms in local cache, 0 switches the cache off.
+     */
+    private int cacheSize = 256;
+    /**
+     * Number of definitions requested by one lookup, 0 requests all
+     * definitions of the term. Next page is requested when user moves past
+     * loaded definitions.
+     */
+    private int pageSize = 20;
+    /**
+     * Compression of binary frames, it saves time on slow networks.
+     */
+    private boolean compression = true;
+    /**
+     * Delay of suggestions request in milliseconds.
+     */
+    private static final int SUGGEST_DELAY = 150;
 
     ClientListener cl;
     private int port;
     private String host;
+    /**
+     * Protocol of connection with server, see {@link DataLink}.
+     */
+    private String protocol = DataLink.BINARY;
     private int index;
 
     /**
@@ -111,7 +172,9 @@ public class Client extends JFrame implements JHelp {
      */
     public int connect(String[] args) {
         getConfig(args);
-        int stateOfConnect = cl.connect(host, port);
+        cl.setTimeout(timeout);
+        int stateOfConnect = cl.connect(host, port, protocol, cacheSize,
+                compression);
         return stateOfConnect;
     }
 
@@ -145,6 +208,11 @@ public class Client extends JFrame implements JHelp {
         term.setBounds(80, 50, 400, 20);
         term.addKeyListener(new ClientListener(this));
 
+        suggestions = new JPopupMenu();
+        suggestions.setFocusable(false);
+        suggestTimer = new Timer(SUGGEST_DELAY, e -> suggest());
+        suggestTimer.setRepeats(false);
+
         definition = new JTextArea();
         definition.setLineWrap(true); // перевод строки 
         definition.setWrapStyleWord(true);//перевод строки: деление по словам
@@ -210,6 +278,80 @@ public class Client extends JFrame implements JHelp {
                 butFind.setEnabled(true);
                 butAdd.setEnabled(true);
             }
+            if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                cancelSuggestions();
+                cancelLookup();
+            } else if (e.getKeyCode() == KeyEvent.VK_ENTER) {
+                cancelSuggestions();
+            } else if (e.getKeyChar() != KeyEvent.CHAR_UNDEFINED) {
+                suggestTimer.restart();
+            }
+        }
+    }
+
+    /**
+     * Method requests terms which start with text of term field. The request
+     * doesn't wait for response, previous request is cancelled and responses
+     * of stale requests are ignored.
+     */
+    private void suggest() {
+        final String prefix = term.getText();
+        final long number = suggestNumber.incrementAndGet();
+        if (suggestion != null) {
+            suggestion.cancel(true);
+        }
+        if (prefix.isEmpty()) {
+            suggestions.setVisible(false);
+            return;
+        }
+        Data request = new Data(PREFIX, new Item(prefix), new Item[0]);
+        request.setLimit(DEFAULT_LIMIT);
+        suggestion = cl.getDataAsync(request, timeout);
+        suggestion.thenAccept(response -> {
+            if (response.getOperation() != PREFIX) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (number == suggestNumber.get()) {
+                    showSuggestions(response.getValues());
+                }
+            });
+        });
+    }
+
+    private void showSuggestions(Item[] values) {
+        suggestions.setVisible(false);
+        suggestions.removeAll();
+        if (values == null || values.length == 0) {
+            return;
+        }
+        for (Item value : values) {
+            JMenuItem item = new JMenuItem(value.getItem());
+            item.addActionListener(e -> {
+                term.setText(value.getItem());
+                cancelSuggestions();
+                butFind.setEnabled(true);
+                butAdd.setEnabled(true);
+            });
+            suggestions.add(item);
+        }
+        suggestions.show(term, 0, term.getHeight());
+        term.requestFocusInWindow();
+    }
+
+    private void cancelSuggestions() {
+        suggestTimer.stop();
+        suggestNumber.incrementAndGet();
+        if (suggestion != null) {
+            suggestion.cancel(true);
+        }
+        suggestions.setVisible(false);
+    }
+
+    private void cancelLookup() {
+        if (lookup != null) {
+            lookup.cancel(true);
+            lookup = null;
         }
     }
 
@@ -230,10 +372,29 @@ public class Client extends JFrame implements JHelp {
         if (sp != null && sp.matches("\\d+")) {
             port = Integer.valueOf(sp);
         }        
+        sp = prop.getProperty("protocol");
+        if (sp != null) {
+            protocol = sp.trim();
+        }
+        sp = prop.getProperty("timeout");
+        if (sp != null && sp.matches("\\d+")) {
+            timeout = Long.valueOf(sp);
+        }
+        sp = prop.getProperty("cacheSize");
+        if (sp != null && sp.matches("\\d+")) {
+            cacheSize = Integer.valueOf(sp);
+        }
+        sp = prop.getProperty("pageSize");
+        if (sp != null && sp.matches("\\d+")) {
+            pageSize = Integer.valueOf(sp);
+        }
+        compression = Boolean.parseBoolean(prop.getProperty("compression",
+                "true"));
     }
 
     void buttonAction(ActionEvent e) {
         String command = e.getActionCommand();
+        cancelSuggestions();
         Item newKey = new Item();
         Item[] newValues = new Item[1];
         Item newValue = new Item();
@@ -281,7 +442,12 @@ public class Client extends JFrame implements JHelp {
                 request.setOperation(DELETE);
                 break;
             case "Next":
-                displayData(++index);
+                if (index + 1 >= data.getValues().length
+                        && data.getCursor() != 0) {
+                    nextPage();
+                } else {
+                    displayData(++index);
+                }
                 return;
             case "Previous":
                 displayData(--index);
@@ -295,9 +461,86 @@ public class Client extends JFrame implements JHelp {
         request.setKey(newKey);
         newValues[0] = newValue;
         request.setValues(newValues);
+        if (request.getOperation() == SELECT) {
+            request.setLimit(pageSize);
+        }
         System.out.println("Clieent reuaest value: " + request.getValue(0).getItem());
-        data = cl.getData(request);
-        displayData(index = 0);
+        send(request);
+    }
+
+    /**
+     * Method sends request of buttons without blocking of event dispatch
+     * thread. Response is displayed by event dispatch thread if no other
+     * request was sent after it.
+     *
+     * @param request request to server.
+     */
+    private void send(Data request) {
+        cancelLookup();
+        final long number = ++requestNumber;
+        CompletableFuture<Data> response = cl.getDataAsync(request, timeout);
+        if (request.getOperation() == SELECT) {
+            lookup = response;
+        }
+        response.whenComplete((newData, ex) -> SwingUtilities.invokeLater(() -> {
+            if (number != requestNumber) {
+                return;
+            }
+            if (lookup == response) {
+                lookup = null;
+            }
+            if (ex == null) {
+                if (request.getCursor() != 0) {
+                    appendPage(newData);
+                } else {
+                    data = newData;
+                    displayData(index = 0);
+                }
+            } else if (!(ex instanceof CancellationException)) {
+                showMessage(ex instanceof Exception ? (Exception) ex
+                        : new Exception(ex));
+            }
+        }));
+    }
+
+    /**
+     * Method requests next page of definitions of displayed term.
+     */
+    private void nextPage() {
+        Item key = data.getKey();
+        Data request = new Data(SELECT, new Item(key.getId(), key.getItem(),
+                ORIGIN), new Item[0]);
+        request.setCursor(data.getCursor());
+        request.setLimit(pageSize);
+        send(request);
+    }
+
+    /**
+     * Method adds next page of definitions to displayed term and displays
+     * first definition of the page. Response for other or deleted term is
+     * displayed instead of the term.
+     *
+     * @param page response for request of next page.
+     */
+    private void appendPage(Data page) {
+        if (page.getOperation() != ORIGIN
+                || page.getKey().getId() != data.getKey().getId()) {
+            data = page;
+            displayData(index = 0);
+            return;
+        }
+        Item[] loaded = data.getValues();
+        Item[] values = Arrays.copyOf(loaded, loaded.length
+                + page.getValues().length);
+        System.arraycopy(page.getValues(), 0, values, loaded.length,
+                page.getValues().length);
+        /*loaded data can be shared with cache of ClientListener*/
+        Data merged = new Data(ORIGIN, data.getKey(), values);
+        merged.setVersion(data.getVersion());
+        merged.setCursor(page.getCursor());
+        merged.setTotal(page.getTotal());
+        data = merged;
+        displayData(index = Math.min(index + 1, values.length - 1));
     }
 
     private void displayData(int i) {
@@ -308,10 +551,20 @@ public class Client extends JFrame implements JHelp {
         int count = data.getValues().length;
         Item item = data.getValue(i);
         String text = item.getItem();
+        Item[] close = data.getSuggestions();
+        if (data.getKey().getId() == JHelp.ERROR && close != null
+                && close.length > 0) {
+            StringBuilder sb = new StringBuilder(text).append("\nDid you mean: ");
+            for (int j = 0; j < close.length; ++j) {
+                sb.append(j == 0 ? "" : ", ").append(close[j].getItem());
+            }
+            text = sb.append('?').toString();
+            showSuggestions(close);
+        }
         definition.setText(text);
 
         butPrevious.setEnabled(i == 0 ? false : true);
-        butNext.setEnabled(i >= (count - 1) ? false : true);
+        butNext.setEnabled(i < count - 1 || data.getCursor() != 0);
 
         butEdit.setEnabled(data.getKey().getId() == JHelp.ERROR ? false : true);
         butDelete.setEnabled(data.getKey().getId() == JHelp.ERROR ? false : true);
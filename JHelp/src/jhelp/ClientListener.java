@@ -13,14 +13,30 @@ import java.awt.event.TextListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.Socket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Class defines a process for all events what happens in client form.
+ * Class defines a process for all events what happens in client form. It also
+ * keeps connection with server: requests are sent by
+ * {@link #getDataAsync(Data, long)} method, responses are read by separate
+ * thread and are matched with requests by <code>requestId</code>. So several
+ * requests can be in flight over one connection.<br>
+ * Responses of SELECT requests for first page of definitions are kept in
+ * local {@link TermCache} object.
+ * Lookup of cached term is sent with <code>version</code> of cached data, if
+ * the term wasn't changed the server returns {@link JHelp#NOT_MODIFIED}
+ * response without definitions and cached data is used.
  *
  * @author <strong >Y.D.Zakovryashin</strong>, 2009
  * @version 1.0
@@ -30,13 +46,67 @@ public class ClientListener extends WindowAdapter
 
     Socket socket;
     private Client client;
-    private ObjectOutputStream oos;
-    private ObjectInputStream ois;
+    private DataLink link;
+    /**
+     * Requests waiting for responses by their <code>requestId</code>.
+     */
+    private final ConcurrentHashMap<Long, Request> pending
+            = new ConcurrentHashMap<>();
+    /**
+     * Local cache of SELECT responses. It is <code>null</code> if the cache
+     * is switched off.
+     */
+    private TermCache cache;
+    /**
+     * Cached terms are checked by server on every lookup, so time to live
+     * only limits memory of unused terms.
+     */
+    private static final long CACHE_TTL = 3600000;
+
+    /**
+     * Request waiting for response.
+     */
+    private static class Request extends CompletableFuture<Data> {
+
+        private final int operation;
+        private final Data data;
+        private final String term;
+        private final long stamp;
+        private final Data cached;
+
+        Request(Data data, String term, long stamp, Data cached) {
+            this.operation = data.getOperation();
+            this.data = data;
+            this.term = term;
+            this.stamp = stamp;
+            this.cached = cached;
+        }
+    }
+    private final AtomicLong requestIds = new AtomicLong();
+    /**
+     * <code>true</code> after reader thread has failed waiting requests.
+     */
+    private volatile boolean closed;
+    /**
+     * Maximal time in milliseconds of waiting for response by
+     * {@link #getData(Data)} method, 0 (zero) means no limit.
+     */
+    private long timeout = 10000;
+    /**
+     * Timer of request timeouts.
+     */
+    private static final ScheduledExecutorService timer
+            = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ClientListener timeouts");
+                t.setDaemon(true);
+                return t;
+            });
 
     /**
      * Single constructor of the class.
      *
-     * @param client references to client form
+     * @param client references to client form, <code>null</code> for
+     * client without form, errors of such client are printed to console.
      */
     public ClientListener(Client client) {
         this.client = client;
@@ -112,55 +182,262 @@ public class ClientListener extends WindowAdapter
     public void textValueChanged(TextEvent e) {
     }
 
-    int connect(String host, int port) {
+    /**
+     * Method opens connection with server and starts reader thread.
+     *
+     * @param host host of server.
+     * @param port port of server.
+     * @param protocol {@link DataLink#BINARY} or {@link DataLink#OBJECT}.
+     * @param cacheSize size of local cache of terms, 0 (zero) switches the
+     * cache off.
+     * @param compression <code>true</code> if large frames may be compressed.
+     * @return {@link JHelp#OK} or {@link JHelp#ERROR}.
+     */
+    public int connect(String host, int port, String protocol, int cacheSize,
+            boolean compression) {
         int flag = JHelp.OK;
+        cache = cacheSize > 0 ? new TermCache(cacheSize, CACHE_TTL) : null;
+        closed = false;
         try {
             socket = new Socket(host, port);
-            oos = new ObjectOutputStream(socket.getOutputStream());
-            ois = new ObjectInputStream(socket.getInputStream());
+            link = DataLink.connect(socket, protocol, compression
+                    ? DataLink.CAPABILITIES
+                    : DataLink.CAPABILITIES & ~DataLink.COMPRESSION);
+            Thread reader = new Thread(this::readResponses, "ClientListener reader");
+            reader.setDaemon(true);
+            reader.start();
         } catch (IOException ex) {
             flag = JHelp.ERROR;
             disconnect();
-            client.showMessage(ex);
+            showMessage(ex);
         } finally {
             return flag;
         }
     }
 
-    int disconnect() {
+    /**
+     * Method sends {@link JHelp#DISCONNECT} message and closes connection.
+     *
+     * @return {@link JHelp#OK} or {@link JHelp#ERROR}.
+     */
+    public int disconnect() {
         int flag = JHelp.OK;
-        if (socket != null && socket.isClosed()) {
+        if (socket == null || socket.isClosed()) {
             return flag;
         }
         Data disconnect = new Data();
         disconnect.setOperation(JHelp.DISCONNECT);
         try {            
-            oos.writeObject(disconnect);
-            socket.close();
+            if (link != null) {
+                link.write(disconnect);
+            }
+            close();
+            if (cache != null) {
+                System.out.println("CLIENT: " + cache);
+            }
+            System.out.println("CLIENT: " + Compressor.statistics());
         } catch (IOException ex) {
             flag = JHelp.ERROR;
-            socket.close();
-            client.showMessage(ex);
+            close();
+            showMessage(ex);
         } finally {             
             return flag;
         }
     }
 
+    /**
+     * Method closes the link, or the socket if the link isn't opened.
+     */
+    private void close() throws IOException {
+        if (link != null) {
+            link.close();
+        } else {
+            socket.close();
+        }
+    }
+
+    /**
+     * Method sets maximal time of waiting for response by
+     * {@link #getData(Data)} method.
+     *
+     * @param timeout time in milliseconds, 0 (zero) means no limit.
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Sends request to server and returns its response. The response is
+     * waited for no longer than <code>timeout</code> milliseconds.
+     *
+     * @param data request.
+     * @return response of server or <code>data</code> object in case of error.
+     * @see #getDataAsync(Data, long)
+     * @see #setTimeout(long)
+     */
     public Data getData(Data data) {
-        Data newData = null;
         System.out.println("ClientListener: getData");
         try {
-            oos.writeObject(data);
-            newData = (Data) ois.readObject();
-            if (newData.getOperation() == JHelp.DISCONNECT) {
-                throw new IOException("ServerDB disconnected");
+            return getDataAsync(data, timeout).get();
+        } catch (ExecutionException ex) {
+            showMessage(ex.getCause() instanceof Exception
+                    ? (Exception) ex.getCause() : ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return data;
+    }
+
+    /**
+     * Sends request to server without waiting for response. The request gets
+     * new <code>requestId</code>. The future can be cancelled, response of
+     * cancelled request is ignored.
+     *
+     * @param data request.
+     * @param timeout maximal time of waiting for response in milliseconds,
+     * <code>0</code> means no limit.
+     * @return future response of server. The future is completed
+     * exceptionally by {@link java.io.IOException} if connection is lost and
+     * by {@link java.util.concurrent.TimeoutException} if the response is not
+     * received in time.
+     */
+    public CompletableFuture<Data> getDataAsync(Data data, long timeout) {
+        String term = null;
+        long stamp = 0;
+        Data cached = null;
+        if (cache != null && data.getOperation() == JHelp.SELECT
+                && data.getCursor() == 0) {
+            term = TermCache.normalize(data.getKey().getItem());
+            stamp = cache.stamp();
+            cached = cache.get(term);
+            /*cached first page can't replace longer page*/
+            if (cached != null && cached.getCursor() != 0
+                    && cached.getValues().length != data.getLimit()) {
+                cached = null;
+            }
+            data.setVersion(cached == null ? 0 : cached.getVersion());
+            if (cached != null) {
+                data.getKey().setId(cached.getKey().getId());
+            }
+        }
+        Request response = new Request(data, term, stamp, cached);
+        DataLink l = link;
+        if (l == null || socket.isClosed()) {
+            response.completeExceptionally(new IOException("No connection"));
+            return response;
+        }
+        long id = requestIds.incrementAndGet();
+        data.setRequestId(id);
+        pending.put(id, response);
+        response.whenComplete((d, ex) -> pending.remove(id));
+        if (closed) {
+            /*reader has failed waiting requests before this one was put*/
+            response.completeExceptionally(new IOException("No connection"));
+            return response;
+        }
+        if (timeout > 0) {
+            ScheduledFuture<?> expiry = timer.schedule(() -> response
+                    .completeExceptionally(new TimeoutException(
+                            "No response in " + timeout + " ms")),
+                    timeout, TimeUnit.MILLISECONDS);
+            response.whenComplete((d, ex) -> expiry.cancel(false));
+        }
+        try {
+            l.write(data);
+        } catch (IOException ex) {
+            response.completeExceptionally(ex);
+            disconnect();
+        }
+        return response;
+    }
+
+    /**
+     * Job cycle of reader thread. Responses are passed to waiting requests,
+     * responses of cancelled and expired requests are dropped. If connection
+     * is lost all waiting requests fail.
+     */
+    private void readResponses() {
+        DataLink l = link;
+        IOException error;
+        try {
+            while (true) {
+                Data data = l.read();
+                if (data.getOperation() == JHelp.DISCONNECT) {
+                    throw new IOException("ServerDB disconnected");
+                }
+                Request response = pending.remove(data.getRequestId());
+                if (response != null) {
+                    response.complete(cache == null ? data : cache(response, data));
+                }
             }
-        } catch (IOException | ClassNotFoundException ex) {
+        } catch (IOException ex) {
+            error = ex;
+        }
+        if (link == l) {
+            closed = true;
+        }
+        boolean lost = !socket.isClosed();
+        for (Request response : pending.values()) {
+            response.completeExceptionally(error);
+        }
+        if (lost) {
             disconnect();
-            newData = data;
+        }
+    }
+
+    /**
+     * Method updates local cache by response of server.
+     *
+     * @param request request of the response.
+     * @param data response of server.
+     * @return cached data for {@link JHelp#NOT_MODIFIED} response, otherwise
+     * the response.
+     */
+    private Data cache(Request request, Data data) {
+        switch (request.operation) {
+            case JHelp.SELECT:
+                if (request.term == null) {
+                    break;
+                }
+                if (data.getOperation() == JHelp.NOT_MODIFIED
+                        && request.cached != null) {
+                    Data cached = ServerDb.page(request.cached, 0,
+                            request.data.getLimit());
+                    cached.setRequestId(data.getRequestId());
+                    return cached;
+                }
+                if (data.getOperation() == JHelp.ORIGIN && data.getVersion() != 0
+                        && data.getKey().getId() != JHelp.ERROR) {
+                    cache.put(request.term, data, request.stamp);
+                } else {
+                    cache.invalidate(request.term, JHelp.ERROR);
+                }
+                break;
+            case JHelp.INSERT:
+            case JHelp.UPDATE:
+            case JHelp.DELETE:
+                cache.invalidate(TermCache.normalize(request.data.getKey()
+                        .getItem()), request.data.getKey().getId());
+                break;
+            case JHelp.BATCH:
+                if (request.data.getBatch() != null) {
+                    for (Data op : request.data.getBatch()) {
+                        if (op.getKey() != null) {
+                            cache.invalidate(TermCache.normalize(
+                                    op.getKey().getItem()), op.getKey().getId());
+                        }
+                    }
+                }
+                break;
+        }
+        return data;
+    }
+
+    private void showMessage(Exception ex) {
+        if (client != null) {
             client.showMessage(ex);
-        } finally {
-            return newData;
+        } else {
+            System.out.println("ClientListenerError: " + ex.getMessage());
         }
     }
 
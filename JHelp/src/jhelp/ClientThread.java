@@ -4,16 +4,19 @@
 package jhelp;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.Socket;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * This class provides a network connection between end client of
  * {@link jhelp.Client} type and {@link jhelp.Server} object. Every object of
- * this class may work in separate thread.
+ * this class may work in separate thread. The thread reads requests without
+ * waiting for responses of previous ones, so one client can have several
+ * requests in flight. Responses are written as soon as they are ready and
+ * keep <code>requestId</code> of the requests.
  *
  * @author <strong >Y.D.Zakovryashin, 2009</strong>
  * @version 1.0
@@ -24,9 +27,14 @@ public class ClientThread implements JHelp, Runnable {
 
     private Server server;
     private Socket clientSocket;
-    private ObjectInputStream input;
-    private ObjectOutputStream output;
+    private DataLink link;
     private Data data;
+    /**
+     * Reading of requests is suspended while the client has so many requests
+     * in flight.
+     */
+    private static final int MAX_IN_FLIGHT = 64;
+    private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
 
     /**
      * Creates a new instance of Client
@@ -47,29 +55,44 @@ public class ClientThread implements JHelp, Runnable {
     public void run() {
         System.out.println("MClient: run");
         if (connect() == OK) {
+            server.getMetrics().connected();
             try {
                 while (true) {
                     if (clientSocket.isClosed()) {
                         break;
                     }
-                    data = (Data) input.readObject();
+                    data = link.read();
                     if (data.getOperation() == DISCONNECT) {
                         break;
                     }
-                    data = server.getData(data);
-                    output.writeObject(data);
+                    inFlight.acquire();
+                    server.getDataAsync(data).whenComplete((response, ex) -> {
+                        try {
+                            if (response != null) {
+                                send(response);
+                            }
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
                 }
-            } catch (IOException | ClassNotFoundException ex) {
+                /*responses of requests in flight are sent before close*/
+                inFlight.tryAcquire(MAX_IN_FLIGHT, 5, TimeUnit.SECONDS);
+            } catch (IOException ex) {
                 showMessage("run(): " + ex.getMessage());
+            } catch (InterruptedException ex) {
+                showMessage("run(): interrupted");
             }
             disconnect();
+            server.getMetrics().disconnected();
         }
 
     }
 
     /**
      * Opens input and output streams for data interchanging with client
-     * application. The method uses default parameters.
+     * application. The method uses default parameters. Protocol of the client
+     * is recognized by {@link DataLink#accept(Socket)} method.
      *
      * @return error code. The method returns {@link JHelp#OK} if streams are
      * successfully opened, otherwise the method returns {@link JHelp#ERROR}.
@@ -78,8 +101,7 @@ public class ClientThread implements JHelp, Runnable {
         System.out.println("MClient: connect");
         int flag = OK;
         try {
-            input = new ObjectInputStream(clientSocket.getInputStream());
-            output = new ObjectOutputStream(clientSocket.getOutputStream());
+            link = DataLink.accept(clientSocket);
         } catch (IOException ex) {
             flag = ERROR;
             showMessage("connect(): " + ex.getMessage());
@@ -115,6 +137,21 @@ public class ClientThread implements JHelp, Runnable {
         return null;
     }
 
+    /**
+     * Sends response to client application. Responses of different requests
+     * are written one by one.
+     *
+     * @param response response of {@link Server} object.
+     */
+    private void send(Data response) {
+        try {
+            link.write(response);
+        } catch (IOException ex) {
+            showMessage("send(response): " + ex.getMessage());
+            disconnect();
+        }
+    }
+
     /**
      * The method closes connection with client application.
      *
@@ -125,7 +162,11 @@ public class ClientThread implements JHelp, Runnable {
     public int disconnect() {
         System.out.println("MClient: disconnect");
         try {
-            clientSocket.close();
+            if (link != null) {
+                link.close();
+            } else {
+                clientSocket.close();
+            }
         } catch (IOException ex) {
             showMessage("disconnect(): " + ex.getMessage());
         }
@@ -0,0 +1,202 @@
+/*
+ * Class Compressor.
+ */
+package jhelp;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * This class compresses binary frames of {@link BinaryDataLink} and
+ * {@link NioFrontEnd} objects. Every frame is compressed separately by
+ * {@link java.util.zip.Deflater}, so frames can be decoded in any order.
+ * Frames shorter than {@link #THRESHOLD} bytes are not compressed, a frame
+ * is sent uncompressed also if compression doesn't make it shorter.<br>
+ * Method {@link #deflate(byte[], int)} and method
+ * {@link #inflate(byte[], int, int, int)} use own buffers, so one writer
+ * and one reader can use the object at the same time. Every method must be
+ * used by one thread at a time.<br>
+ * Native memory of the object is freed by {@link #close()} method, which can
+ * be called by any thread. The method waits until current compression and
+ * decompression finish, later calls compress nothing and decompression
+ * fails.<br>
+ * Counters of all compressors of the process are returned by
+ * {@link #statistics()} method.
+ *
+ * @version 1.0
+ * @see jhelp.DataLink#COMPRESSION
+ */
+public class Compressor {
+
+    /**
+     * Minimal length of compressed frame in bytes.
+     */
+    public static final int THRESHOLD = 256;
+    private static final AtomicLong deflated = new AtomicLong();
+    private static final AtomicLong skipped = new AtomicLong();
+    private static final AtomicLong rawBytes = new AtomicLong();
+    private static final AtomicLong sentBytes = new AtomicLong();
+    private static final AtomicLong deflateNanos = new AtomicLong();
+    private static final AtomicLong inflated = new AtomicLong();
+    private static final AtomicLong inflateNanos = new AtomicLong();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final Inflater inflater = new Inflater();
+    private byte[] output = new byte[512];
+    private byte[] input = new byte[512];
+    /**
+     * <code>true</code> after {@link #close()} call. The flags are guarded by
+     * monitors of <code>deflater</code> and <code>inflater</code>.
+     */
+    private boolean deflaterEnded;
+    private boolean inflaterEnded;
+
+    /**
+     * Method compresses the bytes into internal buffer.
+     *
+     * @param bytes bytes to compress.
+     * @param length number of bytes at the beginning of <code>bytes</code>.
+     * @return number of compressed bytes at the beginning of
+     * {@link #deflated()} buffer or -1 (minus one) if the bytes should be sent
+     * uncompressed.
+     */
+    public int deflate(byte[] bytes, int length) {
+        if (length < THRESHOLD) {
+            return -1;
+        }
+        synchronized (deflater) {
+            return deflaterEnded ? -1 : deflateFrame(bytes, length);
+        }
+    }
+
+    private int deflateFrame(byte[] bytes, int length) {
+        long start = System.nanoTime();
+        if (output.length < length) {
+            output = new byte[Math.max(length, output.length * 2)];
+        }
+        deflater.reset();
+        deflater.setInput(bytes, 0, length);
+        deflater.finish();
+        int n = 0;
+        /*output shorter than input only is useful*/
+        while (!deflater.finished() && n < length) {
+            n += deflater.deflate(output, n, length - n);
+        }
+        deflateNanos.addAndGet(System.nanoTime() - start);
+        /*compressed frame has also length of binary form*/
+        if (!deflater.finished() || n + 4 >= length) {
+            skipped.incrementAndGet();
+            return -1;
+        }
+        deflated.incrementAndGet();
+        rawBytes.addAndGet(length);
+        sentBytes.addAndGet(n);
+        return n;
+    }
+
+    /**
+     * Method returns buffer with result of last
+     * {@link #deflate(byte[], int)} call.
+     *
+     * @return internal buffer.
+     */
+    public byte[] deflated() {
+        return output;
+    }
+
+    /**
+     * Method decompresses the bytes into internal buffer.
+     *
+     * @param bytes array with compressed bytes.
+     * @param offset first compressed byte.
+     * @param length number of compressed bytes.
+     * @param rawLength number of bytes before compression.
+     * @return internal buffer with <code>rawLength</code> decompressed bytes
+     * at the beginning.
+     * @throws StreamCorruptedException if the bytes aren't correct compressed
+     * form of <code>rawLength</code> bytes.
+     * @throws IOException if the compressor is closed.
+     */
+    public byte[] inflate(byte[] bytes, int offset, int length, int rawLength)
+            throws IOException {
+        if (rawLength < 0 || rawLength > BinaryDataLink.MAX_FRAME) {
+            throw new StreamCorruptedException("Invalid raw length: " + rawLength);
+        }
+        synchronized (inflater) {
+            if (inflaterEnded) {
+                throw new IOException("Compressor is closed");
+            }
+            return inflateFrame(bytes, offset, length, rawLength);
+        }
+    }
+
+    private byte[] inflateFrame(byte[] bytes, int offset, int length,
+            int rawLength) throws StreamCorruptedException {
+        long start = System.nanoTime();
+        if (input.length < rawLength) {
+            input = new byte[Math.max(rawLength, input.length * 2)];
+        }
+        inflater.reset();
+        inflater.setInput(bytes, offset, length);
+        int n = 0;
+        try {
+            while (n < rawLength) {
+                int k = inflater.inflate(input, n, rawLength - n);
+                if (k == 0 && (inflater.finished() || inflater.needsInput()
+                        || inflater.needsDictionary())) {
+                    break;
+                }
+                n += k;
+            }
+        } catch (DataFormatException ex) {
+            throw new StreamCorruptedException("Invalid compressed frame: "
+                    + ex.getMessage());
+        }
+        if (n < rawLength) {
+            throw new StreamCorruptedException("Truncated compressed frame");
+        }
+        inflated.incrementAndGet();
+        inflateNanos.addAndGet(System.nanoTime() - start);
+        return input;
+    }
+
+    /**
+     * Method frees native memory of the compressor. It waits for current
+     * calls of {@link #deflate(byte[], int)} and
+     * {@link #inflate(byte[], int, int, int)} methods.
+     */
+    public void close() {
+        synchronized (deflater) {
+            if (!deflaterEnded) {
+                deflaterEnded = true;
+                deflater.end();
+            }
+        }
+        synchronized (inflater) {
+            if (!inflaterEnded) {
+                inflaterEnded = true;
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Method returns counters of all compressors: number of compressed
+     * frames, number of frames which weren't made shorter, number of bytes
+     * saved by compression and time of compression and decompression.
+     *
+     * @return text form of the counters.
+     */
+    public static String statistics() {
+        long raw = rawBytes.get();
+        long sent = sentBytes.get();
+        return "Compressor[deflated=" + deflated.get() + ", skipped="
+                + skipped.get() + ", raw=" + raw + ", sent=" + sent
+                + ", saved=" + (raw - sent) + ", deflateMs="
+                + deflateNanos.get() / 1000000 + ", inflated=" + inflated.get()
+                + ", inflateMs=" + inflateNanos.get() / 1000000 + "]";
+    }
+}
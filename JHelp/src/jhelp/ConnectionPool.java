@@ -0,0 +1,285 @@
+/*
+ * Class ConnectionPool.
+ */
+package jhelp;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class presents pool of JDBC connections used by {@link jhelp.ServerDb}
+ * object. The pool opens at least <code>minSize</code> and at most
+ * <code>maxSize</code> connections. Every connection is validated when it is
+ * borrowed from the pool. Connections which were not used longer than
+ * <code>idleTimeout</code> are closed, but the pool always keeps
+ * <code>minSize</code> connections open. The pool counts borrows and time
+ * spent in waiting for a free connection.
+ *
+ * @version 1.0
+ * @see jhelp.DbConnection
+ * @see jhelp.ServerDb
+ */
+public class ConnectionPool {
+
+    /**
+     * Timeout in seconds for connection validation.
+     */
+    private static final int VALIDATION_TIMEOUT = 2;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeout;
+    private final long idleTimeout;
+    /**
+     * Free connections. The most recently used connection is the first one.
+     */
+    private final ConcurrentLinkedDeque<DbConnection> idle
+            = new ConcurrentLinkedDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger size = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong waitTime = new AtomicLong();
+    private final AtomicLong maxWaitTime = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong invalidCount = new AtomicLong();
+
+    /**
+     * Creates a new instance of <code>ConnectionPool</code> and opens
+     * <code>minSize</code> connections.
+     *
+     * @param url database url.
+     * @param user database user.
+     * @param password password of database user.
+     * @param minSize minimal number of open connections.
+     * @param maxSize maximal number of open connections.
+     * @param borrowTimeout maximal time in milliseconds for waiting of free
+     * connection.
+     * @param idleTimeout time in milliseconds after which unused connection
+     * is closed.
+     * @throws SQLException if any initial connection can't be opened.
+     */
+    public ConnectionPool(String url, String user, String password,
+            int minSize, int maxSize, long borrowTimeout, long idleTimeout)
+            throws SQLException {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        this.minSize = Math.min(Math.max(0, minSize), this.maxSize);
+        this.borrowTimeout = borrowTimeout;
+        this.idleTimeout = idleTimeout;
+        permits = new Semaphore(this.maxSize, true);
+        for (int i = 0; i < this.minSize; ++i) {
+            idle.addFirst(create());
+        }
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ConnectionPool evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, idleTimeout / 2);
+        evictor.scheduleWithFixedDelay(this::evict, period, period,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Method borrows connection from the pool. The method waits for free
+     * connection if all <code>maxSize</code> connections are in use. The
+     * connection must be returned by {@link DbConnection#close()} method.
+     *
+     * @return valid connection.
+     * @throws SQLException if there is no free connection during
+     * <code>borrowTimeout</code> or new connection can't be opened.
+     */
+    public DbConnection borrow() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeout, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Connection pool timeout: all "
+                        + maxSize + " connections are busy");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Connection pool: interrupted", ex);
+        }
+        long wait = System.nanoTime() - start;
+        borrowCount.incrementAndGet();
+        waitTime.addAndGet(wait);
+        maxWaitTime.accumulateAndGet(wait, Math::max);
+        try {
+            DbConnection con;
+            while ((con = idle.pollFirst()) != null) {
+                if (isValid(con)) {
+                    return con;
+                }
+                invalidCount.incrementAndGet();
+                size.decrementAndGet();
+                con.destroy();
+            }
+            return create();
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Method returns borrowed connection to the pool.
+     *
+     * @param con borrowed connection.
+     */
+    void release(DbConnection con) {
+        try {
+            Connection c = con.getConnection();
+            if (!c.getAutoCommit()) {
+                c.rollback();
+                c.setAutoCommit(true);
+            }
+            con.setLastUsed(System.currentTimeMillis());
+            idle.addFirst(con);
+        } catch (SQLException ex) {
+            size.decrementAndGet();
+            con.destroy();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Method closes all free connections and stops eviction of idle
+     * connections.
+     */
+    public void close() {
+        evictor.shutdownNow();
+        DbConnection con;
+        while ((con = idle.pollFirst()) != null) {
+            size.decrementAndGet();
+            con.destroy();
+        }
+    }
+
+    private DbConnection create() throws SQLException {
+        size.incrementAndGet();
+        try {
+            DbConnection con = new DbConnection(this,
+                    DriverManager.getConnection(url, user, password));
+            createdCount.incrementAndGet();
+            return con;
+        } catch (SQLException ex) {
+            size.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    private boolean isValid(DbConnection con) {
+        try {
+            return con.getConnection().isValid(VALIDATION_TIMEOUT);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Method closes connections which were not used longer than
+     * <code>idleTimeout</code>. Recently used connections are at the head of
+     * the queue, so the method checks the tail only.
+     */
+    private void evict() {
+        long border = System.currentTimeMillis() - idleTimeout;
+        Iterator<DbConnection> it = idle.descendingIterator();
+        while (it.hasNext() && size.get() > minSize) {
+            DbConnection con = it.next();
+            if (con.getLastUsed() > border) {
+                break;
+            }
+            if (idle.removeLastOccurrence(con)) {
+                size.decrementAndGet();
+                evictedCount.incrementAndGet();
+                con.destroy();
+            }
+        }
+    }
+
+    /**
+     * Method returns number of open connections.
+     *
+     * @return number of open connections.
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * Method returns number of connections in use.
+     *
+     * @return number of borrowed connections.
+     */
+    public int getActive() {
+        return maxSize - permits.availablePermits();
+    }
+
+    /**
+     * Method returns number of successful borrows.
+     *
+     * @return number of borrows.
+     */
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    /**
+     * Method returns total time of waiting for free connection.
+     *
+     * @return total wait time in nanoseconds.
+     */
+    public long getWaitTime() {
+        return waitTime.get();
+    }
+
+    /**
+     * Method returns maximal time of waiting for free connection.
+     *
+     * @return maximal wait time in nanoseconds.
+     */
+    public long getMaxWaitTime() {
+        return maxWaitTime.get();
+    }
+
+    /**
+     * Method returns number of borrows failed by timeout.
+     *
+     * @return number of timeouts.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    @Override
+    public String toString() {
+        long borrows = borrowCount.get();
+        return "ConnectionPool[size=" + size.get() + ", active=" + getActive()
+                + ", borrows=" + borrows + ", avgWaitUs="
+                + (borrows == 0 ? 0 : waitTime.get() / borrows / 1000)
+                + ", maxWaitUs=" + maxWaitTime.get() / 1000
+                + ", timeouts=" + timeoutCount.get()
+                + ", created=" + createdCount.get()
+                + ", evicted=" + evictedCount.get()
+                + ", invalid=" + invalidCount.get() + "]";
+    }
+}
@@ -23,6 +23,50 @@ public class Data implements Serializable {
     private int operation;
     private Item key;
     private Item[] values;
+    /**
+     * Correlation identificator of request. It's used to match a response
+     * with its request when several requests share one connection. Default
+     * value is 0 (zero).
+     */
+    private long requestId;
+    /**
+     * Version of data. {@link jhelp.ServerDb} object increases the version on
+     * every committed change. Default value is 0 (zero).
+     */
+    private long version;
+    /**
+     * Maximal number of values in response. Default value is 0 (zero), it
+     * means default number for the operation.
+     */
+    private int limit;
+    /**
+     * Position of page of definitions. In SELECT request it is identificator
+     * of last definition of previous page, in response it is identificator
+     * of last definition of the page if more definitions follow. Default
+     * value is 0 (zero), it means first page in request and last page in
+     * response.
+     */
+    private int cursor;
+    /**
+     * Number of all definitions of the term in response for SELECT request.
+     * Default value is 0 (zero).
+     */
+    private int total;
+    /**
+     * Time of processing of request by {@link jhelp.ServerDb} object in
+     * microseconds, it is set in response. Default value is 0 (zero).
+     */
+    private long serviceTime;
+    /**
+     * Terms close to unknown requested term. Default value is
+     * <code>null</code>.
+     */
+    private Item[] suggestions;
+    /**
+     * Operations of {@link jhelp.JHelp#BATCH} request or their results in the
+     * response. Default value is <code>null</code>.
+     */
+    private Data[] batch;
 
     /**
      * Default constructor defines all class attributes with default values.
@@ -127,4 +171,132 @@ public class Data implements Serializable {
     public void setValues(Item[] values) {
         this.values = values;
     }
+
+    /**
+     * Method returns current value of <code>requestId</code> attribute.
+     * @return correlation identificator of request.
+     */
+    public long getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * Method sets current value of <code>requestId</code> attribute.
+     * @param requestId new correlation identificator of request.
+     */
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
+
+    /**
+     * Method returns current value of <code>version</code> attribute.
+     * @return version of data.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Method sets current value of <code>version</code> attribute.
+     * @param version new version of data.
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Method returns current value of <code>limit</code> attribute.
+     * @return maximal number of values in response.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Method sets current value of <code>limit</code> attribute.
+     * @param limit maximal number of values in response.
+     */
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Method returns current value of <code>cursor</code> attribute.
+     * @return position of page of definitions.
+     */
+    public int getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Method sets current value of <code>cursor</code> attribute.
+     * @param cursor position of page of definitions.
+     */
+    public void setCursor(int cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * Method returns current value of <code>total</code> attribute.
+     * @return number of all definitions of the term.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Method sets current value of <code>total</code> attribute.
+     * @param total number of all definitions of the term.
+     */
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    /**
+     * Method returns current value of <code>serviceTime</code> attribute.
+     * @return time of processing of request in microseconds.
+     */
+    public long getServiceTime() {
+        return serviceTime;
+    }
+
+    /**
+     * Method sets current value of <code>serviceTime</code> attribute.
+     * @param serviceTime time of processing of request in microseconds.
+     */
+    public void setServiceTime(long serviceTime) {
+        this.serviceTime = serviceTime;
+    }
+
+    /**
+     * Method returns current value of <code>suggestions</code> attribute.
+     * @return array of terms close to requested term or <code>null</code>.
+     */
+    public Item[] getSuggestions() {
+        return suggestions;
+    }
+
+    /**
+     * Method sets current value of <code>suggestions</code> attribute.
+     * @param suggestions array of terms close to requested term.
+     */
+    public void setSuggestions(Item[] suggestions) {
+        this.suggestions = suggestions;
+    }
+
+    /**
+     * Method returns current value of <code>batch</code> attribute.
+     * @return operations of batch request or their results.
+     */
+    public Data[] getBatch() {
+        return batch;
+    }
+
+    /**
+     * Method sets current value of <code>batch</code> attribute.
+     * @param batch operations of batch request or their results.
+     */
+    public void setBatch(Data[] batch) {
+        this.batch = batch;
+    }
 }
@@ -0,0 +1,261 @@
+/*
+ * Class DataCodec.
+ */
+package jhelp;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class converts {@link jhelp.Data} objects into compact binary form and
+ * back. It is used by {@link jhelp.BinaryDataLink} instead of Java
+ * serialization. Binary form of <code>Data</code> object is:<br>
+ * <code><pre>
+ *     int    operation
+ *     long   requestId
+ *     long   version
+ *     int    limit
+ *     int    cursor
+ *     int    total
+ *     long   serviceTime
+ *     Item   key
+ *     Item[] values
+ *     Item[] suggestions
+ *     Data[] batch
+ * </pre></code> Operations of batch can't contain own batch. Array is
+ * written as <code>int</code> length (-1 for <code>null</code>) and its
+ * items. <code>Item</code> object is written as
+ * <code>byte</code> flag (0 for <code>null</code>), <code>int</code> id,
+ * <code>int</code> state and string. String is written as <code>int</code>
+ * length of UTF-8 bytes (-1 for <code>null</code>) and the bytes. All numbers
+ * are big-endian.<br>
+ * Object of this class keeps its buffer between calls and must be used by
+ * one thread at a time.
+ *
+ * @version 1.0
+ * @see jhelp.BinaryDataLink
+ */
+public class DataCodec {
+
+    private byte[] buf;
+    private int pos;
+    private int end;
+
+    /**
+     * Creates a new instance of <code>DataCodec</code>.
+     */
+    public DataCodec() {
+        buf = new byte[512];
+    }
+
+    /**
+     * Method writes binary form of <code>data</code> object into internal
+     * buffer of the codec.
+     *
+     * @param data object to encode.
+     * @return number of bytes at the beginning of {@link #buffer()}.
+     */
+    public int encode(Data data) {
+        pos = 0;
+        putData(data, true);
+        return pos;
+    }
+
+    private void putData(Data data, boolean top) {
+        putInt(data.getOperation());
+        putLong(data.getRequestId());
+        putLong(data.getVersion());
+        putInt(data.getLimit());
+        putInt(data.getCursor());
+        putInt(data.getTotal());
+        putLong(data.getServiceTime());
+        putItem(data.getKey());
+        putItems(data.getValues());
+        putItems(data.getSuggestions());
+        Data[] batch = top ? data.getBatch() : null;
+        if (batch == null) {
+            putInt(-1);
+            return;
+        }
+        putInt(batch.length);
+        for (Data d : batch) {
+            putData(d, false);
+        }
+    }
+
+    /**
+     * Method returns internal buffer of the codec. The buffer contains result
+     * of last {@link #encode(Data)} call and is reused by next call.
+     *
+     * @return internal buffer.
+     */
+    public byte[] buffer() {
+        return buf;
+    }
+
+    /**
+     * Method restores {@link Data} object from its binary form.
+     *
+     * @param bytes array with binary form.
+     * @param offset first byte of binary form.
+     * @param length number of bytes of binary form.
+     * @return new {@link Data} object.
+     * @throws IOException if the bytes don't contain correct binary form.
+     */
+    public Data decode(byte[] bytes, int offset, int length) throws IOException {
+        byte[] own = buf;
+        buf = bytes;
+        pos = offset;
+        end = offset + length;
+        try {
+            Data data = getData();
+            int n = getInt();
+            if (n >= 0) {
+                if (n > end - pos) {
+                    throw new ArrayIndexOutOfBoundsException(n);
+                }
+                Data[] batch = new Data[n];
+                for (int i = 0; i < n; ++i) {
+                    batch[i] = getData();
+                    if (getInt() >= 0) {
+                        throw new StreamCorruptedException("Nested batch");
+                    }
+                }
+                data.setBatch(batch);
+            }
+            return data;
+        } catch (ArrayIndexOutOfBoundsException | NegativeArraySizeException ex) {
+            throw new StreamCorruptedException("Invalid Data: " + ex.getMessage());
+        } finally {
+            buf = own;
+        }
+    }
+
+    private Data getData() {
+        int operation = getInt();
+        long requestId = getLong();
+        long version = getLong();
+        int limit = getInt();
+        int cursor = getInt();
+        int total = getInt();
+        long serviceTime = getLong();
+        Data data = new Data(operation, getItem(), getItems());
+        data.setSuggestions(getItems());
+        data.setRequestId(requestId);
+        data.setVersion(version);
+        data.setLimit(limit);
+        data.setCursor(cursor);
+        data.setTotal(total);
+        data.setServiceTime(serviceTime);
+        return data;
+    }
+
+    private void ensure(int n) {
+        if (pos + n > buf.length) {
+            byte[] b = new byte[Math.max(buf.length * 2, pos + n)];
+            System.arraycopy(buf, 0, b, 0, pos);
+            buf = b;
+        }
+    }
+
+    private void putInt(int v) {
+        ensure(4);
+        buf[pos++] = (byte) (v >>> 24);
+        buf[pos++] = (byte) (v >>> 16);
+        buf[pos++] = (byte) (v >>> 8);
+        buf[pos++] = (byte) v;
+    }
+
+    private void putLong(long v) {
+        putInt((int) (v >>> 32));
+        putInt((int) v);
+    }
+
+    private void putString(String s) {
+        if (s == null) {
+            putInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        putInt(b.length);
+        ensure(b.length);
+        System.arraycopy(b, 0, buf, pos, b.length);
+        pos += b.length;
+    }
+
+    private void putItem(Item item) {
+        ensure(1);
+        if (item == null) {
+            buf[pos++] = 0;
+            return;
+        }
+        buf[pos++] = 1;
+        putInt(item.getId());
+        putInt(item.getState());
+        putString(item.getItem());
+    }
+
+    private void putItems(Item[] items) {
+        if (items == null) {
+            putInt(-1);
+            return;
+        }
+        putInt(items.length);
+        for (Item item : items) {
+            putItem(item);
+        }
+    }
+
+    private int getInt() {
+        if (pos + 4 > end) {
+            throw new ArrayIndexOutOfBoundsException(pos + 4);
+        }
+        return (buf[pos++] & 0xff) << 24 | (buf[pos++] & 0xff) << 16
+                | (buf[pos++] & 0xff) << 8 | (buf[pos++] & 0xff);
+    }
+
+    private long getLong() {
+        return (long) getInt() << 32 | (getInt() & 0xffffffffL);
+    }
+
+    private String getString() {
+        int n = getInt();
+        if (n < 0) {
+            return null;
+        }
+        if (pos + n > end) {
+            throw new ArrayIndexOutOfBoundsException(pos + n);
+        }
+        String s = new String(buf, pos, n, StandardCharsets.UTF_8);
+        pos += n;
+        return s;
+    }
+
+    private Item getItem() {
+        if (pos >= end) {
+            throw new ArrayIndexOutOfBoundsException(pos);
+        }
+        if (buf[pos++] == 0) {
+            return null;
+        }
+        int id = getInt();
+        int state = getInt();
+        return new Item(id, getString(), state);
+    }
+
+    private Item[] getItems() {
+        int n = getInt();
+        if (n < 0) {
+            return null;
+        }
+        if (n > end - pos) {
+            throw new ArrayIndexOutOfBoundsException(n);
+        }
+        Item[] items = new Item[n];
+        for (int i = 0; i < n; ++i) {
+            items[i] = getItem();
+        }
+        return items;
+    }
+}
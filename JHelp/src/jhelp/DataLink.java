@@ -0,0 +1,172 @@
+/*
+ * Interface DataLink.
+ */
+package jhelp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+
+/**
+ * This interface defines network connection which transfers {@link Data}
+ * objects. Two protocols are supported: Java serialization
+ * ({@link ObjectDataLink}) and compact binary frames ({@link BinaryDataLink}).
+ * Client side chooses the protocol. Binary client starts the connection with
+ * {@link #MAGIC} number and capabilities, server side answers the same way.
+ * Server side accepts both protocols on the same port, so old clients keep
+ * working. Binary form of {@link Data} object is versioned by the magic
+ * number: a peer which uses other version is refused by both sides.<br>
+ * Method {@link #write(Data)} may be called by several threads, method
+ * {@link #read()} is called by single thread.
+ *
+ * @version 1.0
+ * @see jhelp.DataCodec
+ */
+public interface DataLink {
+
+    /**
+     * Value of <code>protocol</code> property for Java serialization.
+     */
+    static final String OBJECT = "object";
+    /**
+     * Value of <code>protocol</code> property for binary frames.
+     */
+    static final String BINARY = "binary";
+    /**
+     * First bytes of binary connection ("JHB2"). The last byte is version of
+     * binary form written by {@link DataCodec}.
+     */
+    static final int MAGIC = 0x4A484232;
+    /**
+     * First bytes of binary connection of version 1 ("JHB1"), whose binary
+     * form has no batch, paging and service time.
+     */
+    static final int MAGIC_V1 = 0x4A484231;
+    /**
+     * Capability and frame flag of compressed frames, see {@link Compressor}.
+     */
+    static final int COMPRESSION = 1;
+    /**
+     * Capabilities of this implementation of binary protocol.
+     */
+    static final int CAPABILITIES = COMPRESSION;
+
+    /**
+     * Method reads next {@link Data} object.
+     *
+     * @return received object.
+     * @throws IOException in case of network error or invalid data.
+     */
+    Data read() throws IOException;
+
+    /**
+     * Method writes {@link Data} object and flushes it to network.
+     *
+     * @param data object to send.
+     * @throws IOException in case of network error.
+     */
+    void write(Data data) throws IOException;
+
+    /**
+     * Method closes the connection.
+     *
+     * @throws IOException in case of network error.
+     */
+    void close() throws IOException;
+
+    /**
+     * Method opens client side of the connection with all capabilities.
+     *
+     * @param socket connected socket.
+     * @param protocol {@link #BINARY} or {@link #OBJECT}.
+     * @return new link.
+     * @throws IOException if the connection can't be opened or server doesn't
+     * support the protocol.
+     */
+    static DataLink connect(Socket socket, String protocol) throws IOException {
+        return connect(socket, protocol, CAPABILITIES);
+    }
+
+    /**
+     * Method opens client side of the connection.
+     *
+     * @param socket connected socket.
+     * @param protocol {@link #BINARY} or {@link #OBJECT}.
+     * @param capabilities capabilities requested by client, for example
+     * {@link #COMPRESSION}. They are used if server supports them.
+     * @return new link.
+     * @throws IOException if the connection can't be opened or server doesn't
+     * support the protocol.
+     */
+    static DataLink connect(Socket socket, String protocol, int capabilities)
+            throws IOException {
+        socket.setTcpNoDelay(true);
+        if (!BINARY.equalsIgnoreCase(protocol)) {
+            return new ObjectDataLink(socket,
+                    new BufferedInputStream(socket.getInputStream()));
+        }
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(socket.getOutputStream()));
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(socket.getInputStream()));
+        out.writeInt(MAGIC);
+        out.writeInt(capabilities & CAPABILITIES);
+        out.flush();
+        int magic = in.readInt();
+        if (magic == MAGIC_V1) {
+            throw new IOException("Server uses old version of binary protocol");
+        }
+        if (magic != MAGIC) {
+            throw new IOException("Server doesn't support binary protocol");
+        }
+        return new BinaryDataLink(socket, in, out,
+                in.readInt() & capabilities & CAPABILITIES);
+    }
+
+    /**
+     * Method opens server side of the connection. The protocol is recognized
+     * by first bytes received from client.
+     *
+     * @param socket accepted socket.
+     * @return new link.
+     * @throws IOException if the connection can't be opened or client uses
+     * other version of binary protocol.
+     */
+    static DataLink accept(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        InputStream is = new BufferedInputStream(socket.getInputStream());
+        is.mark(4);
+        int magic = 0;
+        for (int i = 0; i < 4; ++i) {
+            int b = is.read();
+            if (b < 0) {
+                throw new IOException("Connection closed by client");
+            }
+            magic = magic << 8 | b;
+        }
+        if (magic == MAGIC_V1) {
+            /*the client refuses the answer before it sends any frame*/
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(MAGIC);
+            out.writeInt(0);
+            out.flush();
+            throw new IOException("Client uses old version of binary protocol");
+        }
+        if (magic != MAGIC) {
+            is.reset();
+            return new ObjectDataLink(socket, is);
+        }
+        DataInputStream in = new DataInputStream(is);
+        int capabilities = in.readInt() & CAPABILITIES;
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(MAGIC);
+        out.writeInt(capabilities);
+        out.flush();
+        return new BinaryDataLink(socket, in, out, capabilities);
+    }
+}
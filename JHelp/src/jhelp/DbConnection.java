@@ -0,0 +1,130 @@
+/*
+ * Class DbConnection.
+ */
+package jhelp;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class presents database connection owned by {@link ConnectionPool}
+ * object. Object of this class is used by one request at a time and must be
+ * returned to the pool by {@link #close()} method, so it can be used in
+ * <code>try</code>-with-resources statement. The object keeps cache of
+ * {@link java.sql.PreparedStatement} objects, so every SQL text is prepared
+ * only once per connection.
+ *
+ * @version 1.0
+ * @see jhelp.ConnectionPool
+ */
+public class DbConnection implements AutoCloseable {
+
+    /**
+     * Maximal number of cached statements.
+     */
+    private static final int STATEMENT_CACHE_SIZE = 32;
+    private final ConnectionPool pool;
+    private final Connection connection;
+    /**
+     * Time in milliseconds when the connection was returned to the pool last
+     * time.
+     */
+    private long lastUsed;
+    /**
+     * Prepared statements of the connection in access order. The eldest
+     * statement is closed when the cache is full.
+     */
+    private final Map<String, PreparedStatement> statements
+            = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<String, PreparedStatement> eldest) {
+            if (size() > STATEMENT_CACHE_SIZE) {
+                close(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Creates a new instance of <code>DbConnection</code>.
+     *
+     * @param pool owner of the connection.
+     * @param connection physical connection to a database.
+     */
+    DbConnection(ConnectionPool pool, Connection connection) {
+        this.pool = pool;
+        this.connection = connection;
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Method returns physical connection to a database.
+     *
+     * @return {@link java.sql.Connection} object.
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Method returns prepared statement for <code>sql</code> text. The
+     * statement is prepared at first call and is taken from the cache at
+     * next calls. Parameters of the statement must be set by caller.
+     *
+     * @param sql SQL text with parameters.
+     * @return {@link java.sql.PreparedStatement} object.
+     * @throws SQLException if the statement can't be prepared.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement ps = statements.get(sql);
+        if (ps == null) {
+            ps = connection.prepareStatement(sql);
+            statements.put(sql, ps);
+        }
+        return ps;
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    void setLastUsed(long lastUsed) {
+        this.lastUsed = lastUsed;
+    }
+
+    /**
+     * Method returns the connection to the pool.
+     */
+    @Override
+    public void close() {
+        pool.release(this);
+    }
+
+    /**
+     * Method closes physical connection to a database.
+     */
+    void destroy() {
+        for (PreparedStatement ps : statements.values()) {
+            close(ps);
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            System.out.println("DbConnectionError: destroy(): " + ex.getMessage());
+        }
+    }
+
+    private static void close(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException ex) {
+            System.out.println("DbConnectionError: close(): " + ex.getMessage());
+        }
+    }
+}
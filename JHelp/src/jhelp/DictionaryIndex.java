@@ -0,0 +1,35 @@
+/*
+ * DictionaryIndex.java
+ */
+package jhelp;
+
+/**
+ * Interface for implementation by in-memory indexes of {@link jhelp.ServerDb}
+ * object. {@link jhelp.ServerDb} object loads whole dictionary into every
+ * index at start and passes current data of every changed term to all indexes
+ * after the change is committed. Implementations must allow concurrent reads
+ * during the changes.
+ *
+ * @version 1.0
+ * @see jhelp.ServerDb
+ * @see jhelp.TermIndex
+ */
+public interface DictionaryIndex {
+
+    /**
+     * Method adds the term or replaces its previous data. The term can have
+     * new name, old name is found by identificator of the term.
+     *
+     * @param data current data of the term: term as <code>key</code> and all
+     * its definitions as <code>values</code>. The object must not be changed
+     * after the call.
+     */
+    void put(Data data);
+
+    /**
+     * Method removes the term from the index.
+     *
+     * @param idTerm identificator of deleted term.
+     */
+    void remove(int idTerm);
+}
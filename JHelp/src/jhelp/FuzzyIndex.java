@@ -0,0 +1,230 @@
+/*
+ * Class FuzzyIndex.
+ */
+package jhelp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class presents in-memory index of terms for search of close terms
+ * ("did you mean"). The index is BK-tree with Levenshtein distance, so search
+ * of terms within small distance checks small part of the dictionary only.
+ * Deleted terms are marked in the tree and the tree is rebuilt when deleted
+ * terms make half of it.
+ *
+ * @version 1.0
+ * @see jhelp.ServerDb
+ */
+public class FuzzyIndex implements DictionaryIndex {
+
+    /**
+     * Node of BK-tree. Every child is stored with its distance to the node.
+     */
+    private static class Node {
+
+        private final String term;
+        private int id;
+        private boolean deleted;
+        private HashMap<Integer, Node> children;
+
+        Node(String term, int id) {
+            this.term = term;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Found term with its distance to requested term.
+     */
+    private static class Match implements Comparable<Match> {
+
+        private final Node node;
+        private final int distance;
+
+        Match(Node node, int distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(Match o) {
+            return distance != o.distance ? distance - o.distance
+                    : node.term.compareTo(o.node.term);
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root;
+    /**
+     * All nodes of the tree by term, including deleted ones.
+     */
+    private final HashMap<String, Node> nodes = new HashMap<>();
+    private final HashMap<Integer, String> names = new HashMap<>();
+    private int deletedCount;
+
+    /**
+     * Method returns terms which differ from requested term by at most
+     * <code>maxDistance</code> edits. Terms are ordered by distance.
+     *
+     * @param term requested term.
+     * @param maxDistance maximal Levenshtein distance.
+     * @param limit maximal number of terms.
+     * @return array of found terms. Identificator of every item is
+     * identificator of the term.
+     */
+    public Item[] find(String term, int maxDistance, int limit) {
+        ArrayList<Match> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (root != null) {
+                ArrayDeque<Node> queue = new ArrayDeque<>();
+                queue.add(root);
+                while (!queue.isEmpty()) {
+                    Node node = queue.poll();
+                    int d = distance(term, node.term);
+                    if (d <= maxDistance && !node.deleted) {
+                        matches.add(new Match(node, d));
+                    }
+                    if (node.children != null) {
+                        for (Map.Entry<Integer, Node> e : node.children.entrySet()) {
+                            if (Math.abs(e.getKey() - d) <= maxDistance) {
+                                queue.add(e.getValue());
+                            }
+                        }
+                    }
+                }
+            }
+            matches.sort(null);
+            int n = Math.min(limit, matches.size());
+            Item[] items = new Item[n];
+            for (int i = 0; i < n; ++i) {
+                Node node = matches.get(i).node;
+                items[i] = new Item(node.id, node.term, JHelp.ORIGIN);
+            }
+            return items;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(Data data) {
+        String term = data.getKey().getItem();
+        int id = data.getKey().getId();
+        lock.writeLock().lock();
+        try {
+            String old = names.put(id, term);
+            if (old != null && !old.equals(term)) {
+                delete(old);
+            }
+            Node node = nodes.get(term);
+            if (node == null) {
+                add(new Node(term, id));
+            } else {
+                if (node.deleted) {
+                    node.deleted = false;
+                    --deletedCount;
+                }
+                node.id = id;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(int idTerm) {
+        lock.writeLock().lock();
+        try {
+            String old = names.remove(idTerm);
+            if (old != null) {
+                delete(old);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Node node) {
+        nodes.put(node.term, node);
+        if (root == null) {
+            root = node;
+            return;
+        }
+        Node parent = root;
+        while (true) {
+            int d = distance(node.term, parent.term);
+            if (parent.children == null) {
+                parent.children = new HashMap<>();
+            }
+            Node child = parent.children.get(d);
+            if (child == null) {
+                parent.children.put(d, node);
+                return;
+            }
+            parent = child;
+        }
+    }
+
+    private void delete(String term) {
+        Node node = nodes.get(term);
+        if (node != null && !node.deleted) {
+            node.deleted = true;
+            ++deletedCount;
+            if (deletedCount * 2 > nodes.size()) {
+                rebuild();
+            }
+        }
+    }
+
+    /**
+     * Method builds new tree from terms which aren't deleted.
+     */
+    private void rebuild() {
+        ArrayList<Node> live = new ArrayList<>(nodes.size() - deletedCount);
+        for (Node node : nodes.values()) {
+            if (!node.deleted) {
+                live.add(new Node(node.term, node.id));
+            }
+        }
+        root = null;
+        nodes.clear();
+        deletedCount = 0;
+        for (Node node : live) {
+            add(node);
+        }
+    }
+
+    /**
+     * Method calculates Levenshtein distance between two strings.
+     *
+     * @param a first string.
+     * @param b second string.
+     * @return minimal number of single character insertions, deletions and
+     * substitutions which change one string into another.
+     */
+    static int distance(String a, String b) {
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); ++j) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); ++i) {
+            cur[0] = i;
+            char c = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); ++j) {
+                int cost = c == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1),
+                        prev[j - 1] + cost);
+            }
+            int[] t = prev;
+            prev = cur;
+            cur = t;
+        }
+        return prev[b.length()];
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Class Histogram.
+ */
+package jhelp;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class presents histogram of latencies in microseconds. Values are
+ * counted in log-linear buckets like HdrHistogram does: values below
+ * {@link #SUB_BUCKETS} have own buckets, every greater power of two is split
+ * into {@link #SUB_BUCKETS} buckets. So relative error of every percentile is
+ * less than 1/{@link #SUB_BUCKETS} and the histogram has fixed size.<br>
+ * Method {@link #record(long)} doesn't lock and doesn't allocate memory, it
+ * can be called by any number of threads.
+ *
+ * @version 1.0
+ * @see jhelp.Metrics
+ */
+public class Histogram {
+
+    /**
+     * Number of buckets of every power of two.
+     */
+    public static final int SUB_BUCKETS = 16;
+    private static final int SUB_BITS = 4;
+    /**
+     * Greater values are counted as this one (about 18 minutes).
+     */
+    private static final long MAX_VALUE = (1L << 30) - 1;
+    private final AtomicLongArray counts = new AtomicLongArray(
+            index(MAX_VALUE) + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Method returns greatest value counted in the bucket.
+     */
+    private static long highest(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS)
+                << (exponent - SUB_BITS);
+        return lowest + (1L << (exponent - SUB_BITS)) - 1;
+    }
+
+    /**
+     * Method counts the value.
+     *
+     * @param micros latency in microseconds.
+     */
+    public void record(long micros) {
+        long value = Math.min(Math.max(micros, 0), MAX_VALUE);
+        counts.incrementAndGet(index(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long m;
+        while (value > (m = max.get()) && !max.compareAndSet(m, value)) {
+        }
+    }
+
+    /**
+     * Method returns number of counted values.
+     *
+     * @return number of values.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Method returns mean of counted values.
+     *
+     * @return mean in microseconds or 0 (zero) if no value is counted.
+     */
+    public long getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    /**
+     * Method returns maximal counted value.
+     *
+     * @return maximal value in microseconds.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Method returns percentile of counted values. Values which are counted
+     * while the method works may be partly taken into account.
+     *
+     * @param percent percent of values, for example 99.9.
+     * @return upper bound of bucket with the percentile in microseconds or 0
+     * (zero) if no value is counted.
+     */
+    public long getPercentile(double percent) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(n * percent / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); ++i) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highest(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + " mean=" + getMean() + " p50="
+                + getPercentile(50) + " p90=" + getPercentile(90) + " p99="
+                + getPercentile(99) + " p999=" + getPercentile(99.9) + " max="
+                + getMax();
+    }
+}
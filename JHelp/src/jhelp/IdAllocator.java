@@ -0,0 +1,164 @@
+/*
+ * Class IdAllocator.
+ */
+package jhelp;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class allocates identificators (primary keys) for new records of one
+ * database table. Identificators are reserved by blocks of
+ * <code>blockSize</code> values and are given out from memory, so a new record
+ * costs single INSERT statement.<br>
+ * Blocks are taken from database sequence <code>&lt;table&gt;_SEQ</code> with
+ * increment equal to <code>blockSize</code>. The sequence is created if it is
+ * absent. So several {@link jhelp.ServerDb} objects can insert records into
+ * the same table. If database doesn't support sequences the allocator reads
+ * <code>MAX(ID)</code> once and then counts identificators in memory. This
+ * mode is correct only while single {@link jhelp.ServerDb} object changes the
+ * table. Support of sequences is decided by the first reservation only,
+ * later errors of the sequence are thrown and the reservation is tried again
+ * by the next call.
+ *
+ * @version 1.0
+ * @see jhelp.ServerDb
+ */
+public class IdAllocator {
+
+    private final String table;
+    private final String sequence;
+    private final int blockSize;
+    private boolean useSequence;
+    /**
+     * <code>true</code> after the first block is reserved.
+     */
+    private boolean checked;
+    /**
+     * Lock of current block. It doesn't pin virtual threads while new block
+     * is reserved in database.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Next free identificator of current block.
+     */
+    private int next;
+    /**
+     * First identificator after current block.
+     */
+    private int limit;
+
+    /**
+     * Creates a new instance of <code>IdAllocator</code>.
+     *
+     * @param table name of database table with <code>ID</code> column.
+     * @param blockSize number of identificators reserved at once.
+     * @param useSequence <code>true</code> if the blocks are taken from
+     * database sequence.
+     */
+    public IdAllocator(String table, int blockSize, boolean useSequence) {
+        this.table = table;
+        this.sequence = table + "_SEQ";
+        this.blockSize = Math.max(1, blockSize);
+        this.useSequence = useSequence;
+    }
+
+    /**
+     * Method returns next free identificator. Database is used only if current
+     * block is exhausted.
+     *
+     * @param con connection of current request.
+     * @return new identificator.
+     * @throws SQLException if new block can't be reserved.
+     */
+    public int next(DbConnection con) throws SQLException {
+        lock.lock();
+        try {
+            if (next >= limit) {
+                reserve(con);
+            }
+            return next++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reserve(DbConnection con) throws SQLException {
+        if (useSequence) {
+            try {
+                next = nextValue(con);
+                limit = next + blockSize;
+                checked = true;
+                return;
+            } catch (SQLException ex) {
+                if (checked || !isUnsupported(ex)) {
+                    throw ex;
+                }
+                showMessage("reserve(): " + ex.getMessage()
+                        + ", identificators are counted in memory");
+                useSequence = false;
+            }
+        }
+        if (limit == 0) {
+            next = maxId(con) + 1;
+        }
+        limit = Integer.MAX_VALUE;
+        checked = true;
+    }
+
+    /**
+     * Method returns <code>true</code> if the error means that database
+     * doesn't support sequences: the feature isn't supported (SQL state class
+     * 0A) or the statement is rejected as syntax error or access rule
+     * violation (SQL state class 42).
+     */
+    private static boolean isUnsupported(SQLException ex) {
+        String state = ex.getSQLState();
+        return ex instanceof SQLFeatureNotSupportedException
+                || (state != null && (state.startsWith("0A")
+                || state.startsWith("42")));
+    }
+
+    private int nextValue(DbConnection con) throws SQLException {
+        try {
+            return selectNextValue(con);
+        } catch (SQLException ex) {
+            /*sequence is absent: create it after current records*/
+            try (Statement st = con.getConnection().createStatement()) {
+                st.executeUpdate("CREATE SEQUENCE " + sequence
+                        + " AS INTEGER START WITH "
+                        + (Math.max(maxId(con), next - 1) + 1)
+                        + " INCREMENT BY " + blockSize);
+            } catch (SQLException exists) {
+                /*the sequence was created by another ServerDb object*/
+            }
+            return selectNextValue(con);
+        }
+    }
+
+    private int selectNextValue(DbConnection con) throws SQLException {
+        try (ResultSet rs = con.prepare("VALUES NEXT VALUE FOR " + sequence)
+                .executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private int maxId(DbConnection con) throws SQLException {
+        int id = 0;
+        try (ResultSet rs = con.prepare("SELECT MAX(ID) FROM " + table)
+                .executeQuery()) {
+            if (rs.next()) {
+                id = rs.getInt(1);
+            }
+        }
+        return id;
+    }
+
+    private void showMessage(String msg) {
+        System.out.println("IdAllocatorError: " + msg);
+    }
+}
@@ -4,6 +4,8 @@
  */
 package jhelp;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Interface for implementation by <code>Client, MClient, Server</code> and
  * <code>ServerDb</code> classes.
@@ -68,6 +70,41 @@ public interface JHelp {
      * replaced by {@link #INSERT}, {@link #UPDATE} or {@link #DELETE} values.
      */
     public static final int ORIGIN = 32;
+    /**
+     * Defines change notification. {@link jhelp.ServerDb} object sends the
+     * notification to every attached {@link jhelp.Server} object after any
+     * committed INSERT, UPDATE or DELETE operation.
+     */
+    public static final int NOTIFY = 64;
+    /**
+     * Defines search of terms by prefix. The prefix is <code>key</code> of
+     * request, found terms are returned as <code>values</code> of response.
+     */
+    public static final int PREFIX = 128;
+    /**
+     * Defines full text search in definitions. Words to search are
+     * <code>key</code> of request, terms which definitions contain the words
+     * are returned as <code>values</code> of response.
+     */
+    public static final int SEARCH = 256;
+    /**
+     * Defines batch of INSERT, UPDATE and DELETE operations. The operations
+     * are <code>batch</code> attribute of request, they are executed in one
+     * transaction. Results of the operations are <code>batch</code> attribute
+     * of response in the same order.
+     */
+    public static final int BATCH = 512;
+    /**
+     * Defines response for SELECT request with <code>version</code> of cached
+     * data, when the term wasn't changed since the version. The response has
+     * the term as <code>key</code> and no <code>values</code>.
+     */
+    public static final int NOT_MODIFIED = 1024;
+    /**
+     * Defines default number of terms returned by {@link #PREFIX} and
+     * {@link #SEARCH} operations.
+     */
+    public static final int DEFAULT_LIMIT = 10;
     /**
      * Defines default port for {@link jhelp.Server} object.
      */
@@ -106,6 +143,21 @@ public interface JHelp {
      */
     Data getData(Data data); // send him termin and getting manual in Data format
 
+    /**
+     * Method returns result of client request to a database without waiting
+     * for it. Default implementation calls {@link #getData(Data)} method in
+     * common pool of {@link CompletableFuture} class, implementations which
+     * can wait without a thread override it.
+     * @param data object of {@link jhelp.Data} type with request to database.
+     * @return future object of {@link jhelp.Data} type with results of request
+     * to a database.
+     * @see #getData(Data)
+     * @since 1.0
+     */
+    default CompletableFuture<Data> getDataAsync(Data data) {
+        return CompletableFuture.supplyAsync(() -> getData(data));
+    }
+
     /**
      * Method disconnects any object from a server
      * @return disconnect result. Method returns {@link #DISCONNECT}
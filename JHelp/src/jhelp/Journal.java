@@ -0,0 +1,518 @@
+/*
+ * Class Journal.
+ */
+package jhelp;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLNonTransientException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * This class presents write-ahead journal of changes for {@link ServerDb}
+ * object. It is used if <code>journal</code> property is <code>true</code>.
+ * A change is acknowledged as soon as its records are written to the journal
+ * file and forced to disk. Requests which come during a write are written
+ * together by the next write, so one disk sync serves many requests (group
+ * commit).<br>
+ * Background applier writes the records to database by large transactions.
+ * Records contain identificators of terms and definitions and every record
+ * can be applied again with the same result, so after a crash the whole
+ * journal is replayed at start. The file is cleared when all its records are
+ * applied. If the file grows over {@link #MAX_SIZE} bytes new changes wait
+ * for the applier.
+ *
+ * @version 1.0
+ * @see jhelp.ServerDb
+ */
+public class Journal {
+
+    /**
+     * Types of records.
+     */
+    public static final byte INSERT_TERM = 1;
+    public static final byte INSERT_DEFINITION = 2;
+    public static final byte UPDATE_TERM = 3;
+    public static final byte UPDATE_DEFINITION = 4;
+    public static final byte DELETE_TERM = 5;
+    public static final byte DELETE_DEFINITION = 6;
+    /**
+     * Size of the journal file which stops new changes until the applier
+     * catches up.
+     */
+    public static final long MAX_SIZE = 64L << 20;
+    private static final long RETRY_DELAY = 1000;
+
+    /**
+     * Receiver of journal records. It must apply all records of the list
+     * in their order or throw exception.
+     */
+    public interface Target {
+
+        /**
+         * Method applies records to database.
+         *
+         * @param records records in order of the journal.
+         * @throws SQLException if the records can't be applied now, they are
+         * applied again later.
+         * @throws SQLNonTransientException if database rejects a record. The
+         * journal is stopped and refuses new changes, records stay in the
+         * file.
+         */
+        void apply(List<Record> records) throws SQLException;
+    }
+
+    /**
+     * One change of database table.
+     */
+    public static class Record {
+
+        private final byte type;
+        private final int id;
+        private final int termId;
+        private final String text;
+        private long sequence;
+
+        /**
+         * Creates a new instance of <code>Record</code>.
+         *
+         * @param type type of the record.
+         * @param id identificator of term or definition.
+         * @param termId identificator of term for {@link #INSERT_DEFINITION}
+         * record.
+         * @param text name of term or text of definition.
+         */
+        public Record(byte type, int id, int termId, String text) {
+            this.type = type;
+            this.id = id;
+            this.termId = termId;
+            this.text = text;
+        }
+
+        public byte getType() {
+            return type;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public int getTermId() {
+            return termId;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    private final File file;
+    private final boolean sync;
+    private final int batchSize;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final CRC32 crc = new CRC32();
+    /**
+     * Lock of the state below. It is released while a group is written.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition written = lock.newCondition();
+    private final Condition applied = lock.newCondition();
+    private ArrayList<Record> pending = new ArrayList<>();
+    private final ArrayDeque<Record> unapplied = new ArrayDeque<>();
+    private long size;
+    private long sequence;
+    private long syncedSequence;
+    private long appliedSequence;
+    private boolean writing;
+    private IOException failed;
+    private long groups;
+    private long transactions;
+    private volatile boolean closed;
+    private Thread applier;
+
+    /**
+     * Creates a new instance of <code>Journal</code>.
+     *
+     * @param file journal file. It is created if it is absent.
+     * @param sync <code>true</code> if every group is forced to disk.
+     * @param batchSize maximal number of records applied by one transaction.
+     * @throws IOException if the file can't be opened.
+     */
+    public Journal(File file, boolean sync, int batchSize) throws IOException {
+        this.file = file;
+        this.sync = sync;
+        this.batchSize = Math.max(1, batchSize);
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+    }
+
+    /**
+     * Method applies records left in the journal by previous run and clears
+     * the journal. Reading stops at the first incomplete or damaged record.
+     * The method must be called before {@link #start(Target)}.
+     *
+     * @param target receiver of records.
+     * @return number of replayed records.
+     * @throws IOException if the journal can't be read.
+     * @throws SQLException if the records can't be applied.
+     */
+    public int replay(Target target) throws IOException, SQLException {
+        int count = 0;
+        ArrayList<Record> batch = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)))) {
+            while (true) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length < 9 || length > MAX_SIZE) {
+                    break;
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                crc.reset();
+                crc.update(bytes, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    showMessage("replay(): damaged record after " + count
+                            + " records");
+                    break;
+                }
+                batch.add(decode(ByteBuffer.wrap(bytes)));
+                ++count;
+                if (batch.size() == batchSize) {
+                    target.apply(batch);
+                    batch.clear();
+                }
+            }
+        } catch (EOFException ex) {
+            /*end of the journal or incomplete record*/
+        }
+        if (!batch.isEmpty()) {
+            target.apply(batch);
+        }
+        channel.truncate(0);
+        channel.force(true);
+        return count;
+    }
+
+    /**
+     * Method starts background applier of records.
+     *
+     * @param target receiver of records.
+     */
+    public void start(Target target) {
+        applier = new Thread(() -> apply(target), "Journal applier");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    /**
+     * Method writes records of one change to the journal. The method returns
+     * when the records are on disk.
+     *
+     * @param records records of the change.
+     * @throws IOException if the journal can't be written. After the error
+     * the journal refuses all changes.
+     */
+    public void append(List<Record> records) throws IOException {
+        lock.lock();
+        try {
+            while (size >= MAX_SIZE && failed == null && !closed) {
+                applied.await();
+            }
+            check();
+            for (Record r : records) {
+                r.sequence = ++sequence;
+                pending.add(r);
+            }
+            long mine = sequence;
+            while (syncedSequence < mine) {
+                check();
+                if (writing) {
+                    written.await();
+                } else {
+                    write();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("append(): interrupted");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void check() throws IOException {
+        if (failed != null) {
+            throw new IOException("Journal is stopped: " + failed.getMessage());
+        }
+        if (closed) {
+            throw new IOException("Journal is closed");
+        }
+    }
+
+    /**
+     * Method writes all pending records as one group. It is called with the
+     * lock, which is released during the write.
+     */
+    private void write() {
+        writing = true;
+        ArrayList<Record> group = pending;
+        pending = new ArrayList<>();
+        long position = size;
+        IOException error = null;
+        lock.unlock();
+        try {
+            ByteBuffer b = encode(group);
+            while (b.hasRemaining()) {
+                position += channel.write(b, position);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (IOException ex) {
+            error = ex;
+        } finally {
+            lock.lock();
+        }
+        writing = false;
+        if (error != null) {
+            failed = error;
+            showMessage("write(): " + error.getMessage());
+        } else {
+            size = position;
+            syncedSequence = group.get(group.size() - 1).sequence;
+            unapplied.addAll(group);
+            ++groups;
+        }
+        written.signalAll();
+    }
+
+    private ByteBuffer encode(List<Record> group) {
+        int capacity = 0;
+        ArrayList<byte[]> texts = new ArrayList<>(group.size());
+        for (Record r : group) {
+            byte[] text = r.text == null ? null
+                    : r.text.getBytes(StandardCharsets.UTF_8);
+            texts.add(text);
+            capacity += 21 + (text == null ? 0 : text.length);
+        }
+        ByteBuffer b = ByteBuffer.allocate(capacity);
+        for (int i = 0; i < group.size(); ++i) {
+            Record r = group.get(i);
+            byte[] text = texts.get(i);
+            int start = b.position();
+            int length = 13 + (text == null ? 0 : text.length);
+            b.putInt(length).putInt(0).put(r.type).putInt(r.id).putInt(r.termId);
+            if (text == null) {
+                b.putInt(-1);
+            } else {
+                b.putInt(text.length).put(text);
+            }
+            crc.reset();
+            crc.update(b.array(), start + 8, length);
+            b.putInt(start + 4, (int) crc.getValue());
+        }
+        b.flip();
+        return b;
+    }
+
+    private static Record decode(ByteBuffer b) {
+        byte type = b.get();
+        int id = b.getInt();
+        int termId = b.getInt();
+        int n = b.getInt();
+        String text = null;
+        if (n >= 0) {
+            text = new String(b.array(), b.position(), n, StandardCharsets.UTF_8);
+        }
+        return new Record(type, id, termId, text);
+    }
+
+    /**
+     * Body of the applier thread.
+     */
+    private void apply(Target target) {
+        ArrayList<Record> batch = new ArrayList<>(batchSize);
+        while (!closed) {
+            lock.lock();
+            try {
+                while (unapplied.isEmpty() && !closed) {
+                    written.await();
+                }
+                Iterator<Record> it = unapplied.iterator();
+                while (it.hasNext() && batch.size() < batchSize) {
+                    batch.add(it.next());
+                }
+            } catch (InterruptedException ex) {
+                break;
+            } finally {
+                lock.unlock();
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                target.apply(batch);
+            } catch (SQLNonTransientException ex) {
+                if (!(ex instanceof SQLNonTransientConnectionException)) {
+                    stop(ex);
+                    break;
+                }
+                showMessage("apply(): " + ex.getMessage());
+                batch.clear();
+                try {
+                    Thread.sleep(RETRY_DELAY);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+                continue;
+            } catch (SQLException ex) {
+                showMessage("apply(): " + ex.getMessage());
+                batch.clear();
+                try {
+                    Thread.sleep(RETRY_DELAY);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+                continue;
+            }
+            lock.lock();
+            try {
+                for (int i = 0; i < batch.size(); ++i) {
+                    unapplied.poll();
+                }
+                appliedSequence = batch.get(batch.size() - 1).sequence;
+                ++transactions;
+                if (appliedSequence == sequence && !writing) {
+                    clear();
+                }
+                applied.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Method stops the journal after database rejects a record. Waiting and
+     * new changes fail with the reason.
+     */
+    private void stop(SQLException ex) {
+        showMessage("apply(): journal is stopped: " + ex.getMessage());
+        lock.lock();
+        try {
+            if (failed == null) {
+                failed = new IOException(ex.getMessage(), ex);
+            }
+            written.signalAll();
+            applied.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method clears the journal when all its records are applied. It is
+     * called with the lock.
+     */
+    private void clear() {
+        try {
+            channel.truncate(0);
+            size = 0;
+        } catch (IOException ex) {
+            showMessage("clear(): " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Method waits until all records written before the call are applied to
+     * database.
+     *
+     * @throws IOException if the journal is stopped or the wait is
+     * interrupted.
+     */
+    public void drain() throws IOException {
+        lock.lock();
+        try {
+            long target = sequence;
+            while (appliedSequence < target) {
+                check();
+                applied.await();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("drain(): interrupted");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method waits for the applier and closes the journal. Records which are
+     * not applied stay in the file and are replayed at next start.
+     *
+     * @param timeout maximal time of waiting in milliseconds.
+     */
+    public void close(long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        lock.lock();
+        try {
+            while (appliedSequence < syncedSequence
+                    && System.currentTimeMillis() < deadline) {
+                applied.await(deadline - System.currentTimeMillis(),
+                        TimeUnit.MILLISECONDS);
+            }
+            closed = true;
+            written.signalAll();
+            applied.signalAll();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+        if (applier != null) {
+            applier.interrupt();
+        }
+        try {
+            raf.close();
+        } catch (IOException ex) {
+            showMessage("close(): " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return "Journal[records=" + sequence + ", groups=" + groups
+                    + ", transactions=" + transactions + ", unapplied="
+                    + unapplied.size() + ", size=" + size + "]";
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void showMessage(String msg) {
+        System.out.println("JournalError: " + msg);
+    }
+}
@@ -0,0 +1,770 @@
+/*
+ * Class LogStorage.
+ */
+package jhelp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * This class presents embedded storage of the dictionary for
+ * {@link jhelp.ServerDb} object, it is used instead of database if
+ * <code>storage</code> property is <code>log</code>. Terms and definitions
+ * are kept in append-only log file, which is mapped into memory. Every change
+ * appends new record, so old versions of terms and definitions become
+ * garbage. In-memory hash index keeps offsets of current records, texts of
+ * definitions are read from the mapped file.<br>
+ * Every record is written as <code>int</code> length, <code>int</code> CRC32
+ * checksum, <code>byte</code> type and data. At start the log is replayed
+ * up to the first incomplete or damaged record, the rest of file is cut off.
+ * Records of batch are placed between BEGIN and COMMIT records and are
+ * replayed only if COMMIT record is present.<br>
+ * Background thread rewrites the log with current records only when
+ * garbage takes more than half of the log. Changes wait for the end of
+ * compaction, reading is not stopped. Size of the log is limited by 2 GB.
+ *
+ * @version 1.0
+ * @see jhelp.ServerDb
+ */
+public class LogStorage {
+
+    /**
+     * Types of records.
+     */
+    private static final byte TERM = 1;
+    private static final byte DEFINITION = 2;
+    private static final byte DELETE_TERM = 3;
+    private static final byte DELETE_DEFINITION = 4;
+    private static final byte BEGIN = 5;
+    private static final byte COMMIT = 6;
+    /**
+     * Length and checksum of record.
+     */
+    private static final int HEADER = 8;
+    /**
+     * Logs smaller than this size are not compacted.
+     */
+    private static final int MIN_COMPACT_SIZE = 1 << 20;
+    private static final long COMPACT_INTERVAL = 10000;
+
+    /**
+     * Current record of term and identificators of its definitions.
+     */
+    private static class TermEntry {
+
+        private final int id;
+        private final String name;
+        private final int offset;
+        private final int size;
+        private final ArrayList<Integer> definitions;
+
+        TermEntry(int id, String name, int offset, int size,
+                ArrayList<Integer> definitions) {
+            this.id = id;
+            this.name = name;
+            this.offset = offset;
+            this.size = size;
+            this.definitions = definitions;
+        }
+    }
+
+    /**
+     * Current record of definition.
+     */
+    private static class DefinitionEntry {
+
+        private final int termId;
+        private final int offset;
+        private final int size;
+
+        DefinitionEntry(int termId, int offset, int size) {
+            this.termId = termId;
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    private final File file;
+    private final boolean sync;
+    /**
+     * Readers take read lock, changes of memory take write lock.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Changes and compaction are made one by one.
+     */
+    private final ReentrantLock mutation = new ReentrantLock();
+    private RandomAccessFile raf;
+    private MappedByteBuffer buffer;
+    private int position;
+    private long liveBytes;
+    private HashMap<Integer, TermEntry> terms = new HashMap<>();
+    private HashMap<Integer, DefinitionEntry> definitions = new HashMap<>();
+    private final HashMap<String, Integer> names = new HashMap<>();
+    private int nextTermId = 1;
+    private int nextDefinitionId = 1;
+    private final CRC32 crc = new CRC32();
+    private final ScheduledExecutorService compactor;
+
+    /**
+     * Creates a new instance of <code>LogStorage</code> and replays the log.
+     *
+     * @param file log file. It is created if it is absent.
+     * @param sync <code>true</code> if every change is forced to disk.
+     * @throws IOException if the log can't be opened.
+     */
+    public LogStorage(File file, boolean sync) throws IOException {
+        this.file = file;
+        this.sync = sync;
+        File tmp = new File(file.getPath() + ".compact");
+        if (tmp.exists() && !tmp.delete()) {
+            throw new IOException("Can't delete " + tmp);
+        }
+        long start = System.currentTimeMillis();
+        map();
+        replay();
+        System.out.println("LogStorage: " + terms.size() + " terms, "
+                + definitions.size() + " definitions, " + position
+                + " bytes are replayed in " + (System.currentTimeMillis() - start)
+                + " ms");
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "LogStorage compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(this::compactIfNeeded,
+                COMPACT_INTERVAL, COMPACT_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    private void map() throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        long size = Math.max(raf.length(), MIN_COMPACT_SIZE);
+        buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * Method returns current data of the term.
+     *
+     * @param term name of the term.
+     * @return term with its definitions or {@link ServerDb#notFound()} if
+     * the term has no definitions.
+     */
+    public Data select(String term) {
+        lock.readLock().lock();
+        try {
+            Integer id = names.get(term);
+            TermEntry t = id == null ? null : terms.get(id);
+            return t == null ? ServerDb.notFound() : data(t);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Data data(TermEntry t) {
+        if (t.definitions.isEmpty()) {
+            return ServerDb.notFound();
+        }
+        Item[] values = new Item[t.definitions.size()];
+        for (int i = 0; i < values.length; ++i) {
+            int id = t.definitions.get(i);
+            values[i] = new Item(id, text(definitions.get(id)), JHelp.ORIGIN);
+        }
+        return new Data(JHelp.ORIGIN, new Item(t.id, t.name, JHelp.ORIGIN), values);
+    }
+
+    /**
+     * Method returns current name of the term.
+     *
+     * @param idTerm identificator of the term.
+     * @return name of the term or <code>null</code> if the term is unknown.
+     */
+    public String term(int idTerm) {
+        lock.readLock().lock();
+        try {
+            TermEntry t = terms.get(idTerm);
+            return t == null ? null : t.name;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method passes every term with definitions to the consumer.
+     *
+     * @param consumer receiver of terms.
+     */
+    public void forEach(Consumer<Data> consumer) {
+        lock.readLock().lock();
+        try {
+            ArrayList<Integer> ids = new ArrayList<>(terms.keySet());
+            Collections.sort(ids);
+            for (int id : ids) {
+                TermEntry t = terms.get(id);
+                if (!t.definitions.isEmpty()) {
+                    consumer.accept(data(t));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method returns terms which start with the prefix.
+     *
+     * @param prefix start of terms.
+     * @param limit maximal number of terms.
+     * @return found terms ordered by name.
+     */
+    public Item[] prefix(String prefix, int limit) {
+        ArrayList<String> found = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (String name : names.keySet()) {
+                if (name.startsWith(prefix)) {
+                    found.add(name);
+                }
+            }
+            Collections.sort(found);
+            int n = Math.min(limit, found.size());
+            Item[] items = new Item[n];
+            for (int i = 0; i < n; ++i) {
+                items[i] = new Item(names.get(found.get(i)), found.get(i),
+                        JHelp.ORIGIN);
+            }
+            return items;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method returns terms which definitions contain the text. The method
+     * reads all definitions, it is used only if text index is switched off.
+     *
+     * @param query text to search.
+     * @param limit maximal number of terms.
+     * @return found terms.
+     */
+    public Item[] search(String query, int limit) {
+        String q = query.toLowerCase(Locale.ROOT);
+        LinkedHashSet<Integer> found = new LinkedHashSet<>();
+        lock.readLock().lock();
+        try {
+            for (DefinitionEntry d : definitions.values()) {
+                if (found.size() >= limit) {
+                    break;
+                }
+                if (text(d).toLowerCase(Locale.ROOT).contains(q)) {
+                    found.add(d.termId);
+                }
+            }
+            ArrayList<Item> items = new ArrayList<>(found.size());
+            for (int id : found) {
+                items.add(new Item(id, terms.get(id).name, JHelp.ORIGIN));
+            }
+            return items.toArray(new Item[items.size()]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method executes single INSERT, UPDATE or DELETE operation.
+     *
+     * @param op operation.
+     * @param touched receives identificator and name of changed term.
+     * @return <code>null</code> or response for operation which can't be
+     * executed.
+     * @throws IOException if the log can't be written.
+     */
+    public Data change(Data op, Map<Integer, String> touched) throws IOException {
+        check(op);
+        mutation.lock();
+        lock.writeLock().lock();
+        try {
+            int idTerm = apply(op, touched);
+            force();
+            return idTerm == JHelp.ERROR ? searchFirst() : null;
+        } finally {
+            lock.writeLock().unlock();
+            mutation.unlock();
+        }
+    }
+
+    /**
+     * Method executes operations of batch. The operations are replayed after
+     * restart only all together. If an operation fails, records of the batch
+     * are cut off and memory is restored from the log, so the log never has
+     * BEGIN record without COMMIT record before other records.
+     *
+     * @param ops INSERT, UPDATE and DELETE operations.
+     * @param results receives responses for operations which can't be
+     * executed.
+     * @param ids receives identificators of terms of operations.
+     * @param touched receives identificators and names of changed terms.
+     * @throws IOException if the log can't be written.
+     */
+    public void batch(Data[] ops, Data[] results, int[] ids,
+            Map<Integer, String> touched) throws IOException {
+        for (Data op : ops) {
+            check(op);
+        }
+        mutation.lock();
+        lock.writeLock().lock();
+        int begin = position;
+        try {
+            append(BEGIN, 0, 0, null);
+            for (int i = 0; i < ops.length; ++i) {
+                ids[i] = apply(ops[i], touched);
+                results[i] = ids[i] == JHelp.ERROR ? searchFirst() : null;
+            }
+            append(COMMIT, 0, 0, null);
+            force();
+        } catch (IOException | RuntimeException ex) {
+            rollback(begin);
+            touched.clear();
+            throw ex;
+        } finally {
+            lock.writeLock().unlock();
+            mutation.unlock();
+        }
+    }
+
+    private static void check(Data op) throws IOException {
+        if (op.getKey() == null || op.getValues() == null
+                || op.getValues().length == 0 || op.getValue(0) == null) {
+            throw new IOException("Operation must have key and value");
+        }
+        if (op.getOperation() == JHelp.INSERT && (op.getValue(0).getItem() == null
+                || op.getKey().getItem() == null)) {
+            throw new IOException("Term and definition can't be null");
+        }
+    }
+
+    /**
+     * Method cuts off records of failed batch and restores memory from the
+     * log.
+     *
+     * @param begin offset of BEGIN record of the batch.
+     */
+    private void rollback(int begin) {
+        ByteBuffer b = buffer.duplicate();
+        b.position(begin);
+        byte[] zeros = new byte[8192];
+        while (b.position() < position) {
+            b.put(zeros, 0, Math.min(zeros.length, position - b.position()));
+        }
+        buffer.force();
+        terms = new HashMap<>();
+        definitions = new HashMap<>();
+        names.clear();
+        liveBytes = 0;
+        nextTermId = 1;
+        nextDefinitionId = 1;
+        replay();
+        System.out.println("LogStorage: batch at " + begin + " is rolled back");
+    }
+
+    private static Data searchFirst() {
+        Data data = new Data();
+        data.setValue(0, new Item("**At first do a search**"));
+        return data;
+    }
+
+    /**
+     * Method changes memory and appends records for the operation. It has
+     * the same rules as JDBC storage of {@link ServerDb} object.
+     *
+     * @return identificator of the term of the operation or
+     * {@link JHelp#ERROR} if the term must be found at first.
+     */
+    private int apply(Data op, Map<Integer, String> touched) throws IOException {
+        Item key = op.getKey();
+        Item value = op.getValue(0);
+        if (op.getOperation() != JHelp.INSERT && key.getId() == JHelp.ERROR) {
+            return JHelp.ERROR;
+        }
+        switch (op.getOperation()) {
+            case JHelp.INSERT:
+                Integer idTerm = names.get(key.getItem());
+                if (idTerm == null) {
+                    idTerm = nextTermId;
+                    append(TERM, idTerm, 0, key.getItem());
+                }
+                append(DEFINITION, nextDefinitionId, idTerm, value.getItem());
+                touched.put(idTerm, key.getItem());
+                return idTerm;
+            case JHelp.UPDATE:
+                if (key.getState() == JHelp.UPDATE && terms.containsKey(key.getId())
+                        && key.getItem() != null) {
+                    append(TERM, key.getId(), 0, key.getItem());
+                }
+                DefinitionEntry d = definitions.get(value.getId());
+                if (value.getState() == JHelp.UPDATE && d != null
+                        && value.getItem() != null) {
+                    append(DEFINITION, value.getId(), d.termId, value.getItem());
+                }
+                touched.put(key.getId(), key.getItem());
+                break;
+            case JHelp.DELETE:
+                if (value.getState() == JHelp.DELETE
+                        && definitions.containsKey(value.getId())) {
+                    append(DELETE_DEFINITION, value.getId(), 0, null);
+                }
+                TermEntry t = terms.get(key.getId());
+                if (key.getState() == JHelp.DELETE && t != null
+                        && t.definitions.isEmpty()) {
+                    append(DELETE_TERM, key.getId(), 0, null);
+                }
+                touched.put(key.getId(), key.getItem());
+                break;
+        }
+        return key.getId();
+    }
+
+    /**
+     * Method appends record to the log and applies it to memory.
+     */
+    private void append(byte type, int id, int termId, String text)
+            throws IOException {
+        ByteBuffer record = encode(type, id, termId, text);
+        int size = record.remaining();
+        if (position + size > buffer.capacity()) {
+            long capacity = Math.max(buffer.capacity() * 2L, position + size);
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IOException("Log is full");
+            }
+            buffer.force();
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                    capacity);
+        }
+        int offset = position;
+        buffer.position(offset);
+        buffer.put(record);
+        position += size;
+        apply(type, id, termId, text, offset, size);
+    }
+
+    private void force() {
+        if (sync) {
+            buffer.force();
+        }
+    }
+
+    private ByteBuffer encode(byte type, int id, int termId, String text) {
+        byte[] bytes = text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+        int length = 1;
+        if (type == TERM) {
+            length += 8 + bytes.length;
+        } else if (type == DEFINITION) {
+            length += 12 + bytes.length;
+        } else if (type == DELETE_TERM || type == DELETE_DEFINITION) {
+            length += 4;
+        }
+        ByteBuffer b = ByteBuffer.allocate(HEADER + length);
+        b.putInt(length).putInt(0).put(type);
+        if (type != BEGIN && type != COMMIT) {
+            b.putInt(id);
+        }
+        if (type == DEFINITION) {
+            b.putInt(termId);
+        }
+        if (bytes != null) {
+            b.putInt(bytes.length).put(bytes);
+        }
+        crc.reset();
+        crc.update(b.array(), HEADER, length);
+        b.putInt(4, (int) crc.getValue());
+        b.flip();
+        return b;
+    }
+
+    /**
+     * Method applies record to memory.
+     */
+    private void apply(byte type, int id, int termId, String text, int offset,
+            int size) {
+        switch (type) {
+            case TERM:
+                TermEntry old = terms.get(id);
+                ArrayList<Integer> list = new ArrayList<>(2);
+                if (old != null) {
+                    liveBytes -= old.size;
+                    list = old.definitions;
+                    names.remove(old.name, id);
+                }
+                terms.put(id, new TermEntry(id, text, offset, size, list));
+                names.put(text, id);
+                liveBytes += size;
+                nextTermId = Math.max(nextTermId, id + 1);
+                break;
+            case DEFINITION:
+                DefinitionEntry d = definitions.put(id,
+                        new DefinitionEntry(termId, offset, size));
+                if (d != null) {
+                    liveBytes -= d.size;
+                } else {
+                    TermEntry t = terms.get(termId);
+                    if (t != null) {
+                        t.definitions.add(id);
+                    }
+                }
+                liveBytes += size;
+                nextDefinitionId = Math.max(nextDefinitionId, id + 1);
+                break;
+            case DELETE_DEFINITION:
+                d = definitions.remove(id);
+                if (d != null) {
+                    liveBytes -= d.size;
+                    TermEntry t = terms.get(d.termId);
+                    if (t != null) {
+                        t.definitions.remove(Integer.valueOf(id));
+                    }
+                }
+                break;
+            case DELETE_TERM:
+                old = terms.remove(id);
+                if (old != null) {
+                    liveBytes -= old.size;
+                    names.remove(old.name, id);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Method reads text of definition from the log.
+     */
+    private String text(DefinitionEntry d) {
+        ByteBuffer b = buffer.duplicate();
+        b.position(d.offset + HEADER + 9);
+        byte[] bytes = new byte[b.getInt()];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Method restores memory from the log and cuts off incomplete tail.
+     */
+    private void replay() {
+        ByteBuffer b = buffer.duplicate();
+        int pos = 0;
+        int batchStart = -1;
+        ArrayList<Object[]> pending = new ArrayList<>();
+        while (pos + HEADER < b.capacity()) {
+            int length = b.getInt(pos);
+            if (length <= 0 || pos + HEADER + length > b.capacity()) {
+                break;
+            }
+            crc.reset();
+            byte[] bytes = new byte[length];
+            b.position(pos + HEADER);
+            b.get(bytes);
+            crc.update(bytes, 0, length);
+            if ((int) crc.getValue() != b.getInt(pos + 4)) {
+                System.out.println("LogStorage: damaged record at " + pos);
+                break;
+            }
+            ByteBuffer r = ByteBuffer.wrap(bytes);
+            byte type = r.get();
+            int id = type == BEGIN || type == COMMIT ? 0 : r.getInt();
+            int termId = type == DEFINITION ? r.getInt() : 0;
+            String text = null;
+            if (type == TERM || type == DEFINITION) {
+                byte[] s = new byte[r.getInt()];
+                r.get(s);
+                text = new String(s, StandardCharsets.UTF_8);
+            }
+            Object[] record = {type, id, termId, text, pos, HEADER + length};
+            if (type == BEGIN) {
+                batchStart = pos;
+                pending.clear();
+            } else if (type == COMMIT) {
+                for (Object[] p : pending) {
+                    replay(p);
+                }
+                pending.clear();
+                batchStart = -1;
+            } else if (batchStart >= 0) {
+                pending.add(record);
+            } else {
+                replay(record);
+            }
+            pos += HEADER + length;
+        }
+        if (batchStart >= 0) {
+            System.out.println("LogStorage: incomplete batch at " + batchStart
+                    + " is discarded");
+            pos = batchStart;
+        }
+        position = pos;
+        /*the tail is cleared, so discarded records are never replayed after
+        new records. Mapped file can't be truncated on every platform*/
+        byte[] zeros = new byte[8192];
+        b.clear();
+        b.position(pos);
+        while (b.hasRemaining()) {
+            b.put(zeros, 0, Math.min(zeros.length, b.remaining()));
+        }
+        buffer.force();
+    }
+
+    private void replay(Object[] r) {
+        apply((Byte) r[0], (Integer) r[1], (Integer) r[2], (String) r[3],
+                (Integer) r[4], (Integer) r[5]);
+    }
+
+    private void compactIfNeeded() {
+        try {
+            if (position > MIN_COMPACT_SIZE && position - liveBytes > liveBytes) {
+                compact();
+            }
+        } catch (IOException | RuntimeException ex) {
+            showMessage("compact(): " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Method rewrites the log with current records only. New log is written
+     * into temporary file, which replaces the log when it is complete and
+     * mapped. If the log can't be replaced, the old log is used further.
+     *
+     * @throws IOException if new log can't be written.
+     */
+    public void compact() throws IOException {
+        mutation.lock();
+        try {
+            long start = System.currentTimeMillis();
+            int before = position;
+            File tmp = new File(file.getPath() + ".compact");
+            HashMap<Integer, TermEntry> newTerms = new HashMap<>(terms.size() * 2);
+            HashMap<Integer, DefinitionEntry> newDefinitions
+                    = new HashMap<>(definitions.size() * 2);
+            int pos = 0;
+            try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+                FileChannel channel = out.getChannel();
+                ArrayList<Integer> ids = new ArrayList<>(terms.keySet());
+                Collections.sort(ids);
+                for (int id : ids) {
+                    TermEntry t = terms.get(id);
+                    ByteBuffer record = copy(t.offset, t.size);
+                    ArrayList<Integer> list = new ArrayList<>(t.definitions);
+                    newTerms.put(id, new TermEntry(id, t.name, pos, t.size, list));
+                    pos += channel.write(record);
+                    for (int idDef : list) {
+                        DefinitionEntry d = definitions.get(idDef);
+                        newDefinitions.put(idDef,
+                                new DefinitionEntry(id, pos, d.size));
+                        pos += channel.write(copy(d.offset, d.size));
+                    }
+                }
+                channel.force(true);
+            }
+            lock.writeLock().lock();
+            try {
+                /*old log is closed only when new log is mapped*/
+                RandomAccessFile newRaf = new RandomAccessFile(tmp, "rw");
+                MappedByteBuffer newBuffer;
+                try {
+                    newBuffer = newRaf.getChannel().map(
+                            FileChannel.MapMode.READ_WRITE, 0,
+                            Math.max(pos, MIN_COMPACT_SIZE));
+                } catch (IOException | RuntimeException ex) {
+                    newRaf.close();
+                    tmp.delete();
+                    throw ex;
+                }
+                buffer.force();
+                raf.close();
+                try {
+                    Files.move(tmp.toPath(), file.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException | RuntimeException ex) {
+                    /*old log stays in use, its mapping is still valid*/
+                    newRaf.close();
+                    tmp.delete();
+                    raf = new RandomAccessFile(file, "rw");
+                    throw ex;
+                }
+                raf = newRaf;
+                buffer = newBuffer;
+                terms = newTerms;
+                definitions = newDefinitions;
+                position = pos;
+                liveBytes = pos;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            System.out.println("LogStorage: log is compacted from " + before
+                    + " to " + pos + " bytes in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } finally {
+            mutation.unlock();
+        }
+    }
+
+    private ByteBuffer copy(int offset, int size) {
+        ByteBuffer b = buffer.duplicate();
+        b.position(offset);
+        b.limit(offset + size);
+        return b;
+    }
+
+    /**
+     * Method returns size of the log in bytes.
+     *
+     * @return size of the log.
+     */
+    public int size() {
+        return position;
+    }
+
+    /**
+     * Method stops compaction and closes the log.
+     */
+    public void close() {
+        compactor.shutdownNow();
+        mutation.lock();
+        try {
+            buffer.force();
+            raf.close();
+        } catch (IOException ex) {
+            showMessage("close(): " + ex.getMessage());
+        } finally {
+            mutation.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LogStorage[terms=" + terms.size() + ", definitions="
+                + definitions.size() + ", size=" + position + ", live="
+                + liveBytes + "]";
+    }
+
+    private void showMessage(String msg) {
+        System.out.println("LogStorageError: " + msg);
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Class Metrics.
+ */
+package jhelp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class collects metrics of {@link jhelp.Server} or
+ * {@link jhelp.ServerDb} object: number of requests and errors, requests in
+ * flight and {@link Histogram} of latency of every operation, and number of
+ * open connections. {@link jhelp.Server} object also splits time of requests
+ * passed to {@link jhelp.ServerDb} object into database time, which is
+ * <code>serviceTime</code> of the response, and network time, which is the
+ * rest of the round trip.<br>
+ * Metrics are published as JMX MBean <code>jhelp:type=Metrics,name=...</code>
+ * (see {@link MetricsMBean}) and as plain text on metrics port, see
+ * {@link #report()}. All methods can be called by any number of threads.
+ *
+ * @version 1.0
+ * @see jhelp.Histogram
+ */
+public class Metrics implements MetricsMBean {
+
+    private final String name;
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Histogram dbTime = new Histogram();
+    private final Histogram networkTime = new Histogram();
+    private ServerSocket scrapeSocket;
+
+    /**
+     * Counters of single operation.
+     */
+    private static class Operation {
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Histogram latency = new Histogram();
+    }
+
+    /**
+     * Creates a new instance of <code>Metrics</code>.
+     *
+     * @param name name of the server, for example <code>Server</code>.
+     */
+    public Metrics(String name) {
+        this.name = name;
+        for (String operation : new String[]{"SELECT", "INSERT", "UPDATE",
+            "DELETE", "PREFIX", "SEARCH", "BATCH", "OTHER"}) {
+            operations.put(operation, new Operation());
+        }
+    }
+
+    private Operation operation(int operation) {
+        switch (operation) {
+            case JHelp.SELECT:
+                return operations.get("SELECT");
+            case JHelp.INSERT:
+                return operations.get("INSERT");
+            case JHelp.UPDATE:
+                return operations.get("UPDATE");
+            case JHelp.DELETE:
+                return operations.get("DELETE");
+            case JHelp.PREFIX:
+                return operations.get("PREFIX");
+            case JHelp.SEARCH:
+                return operations.get("SEARCH");
+            case JHelp.BATCH:
+                return operations.get("BATCH");
+            default:
+                return operations.get("OTHER");
+        }
+    }
+
+    /**
+     * Method marks start of request.
+     *
+     * @param operation operation of the request.
+     * @return start time for {@link #finish(int, long, boolean)} method.
+     */
+    public long start(int operation) {
+        operation(operation).inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Method marks end of request.
+     *
+     * @param operation operation of the request.
+     * @param start value returned by {@link #start(int)} method.
+     * @param error <code>true</code> if the request failed.
+     * @return latency of the request in microseconds.
+     */
+    public long finish(int operation, long start, boolean error) {
+        long micros = (System.nanoTime() - start) / 1000;
+        Operation o = operation(operation);
+        o.inFlight.decrementAndGet();
+        o.requests.increment();
+        if (error) {
+            o.errors.increment();
+        }
+        o.latency.record(micros);
+        return micros;
+    }
+
+    /**
+     * Method splits round trip of request passed to {@link ServerDb} object
+     * into database time and network time.
+     *
+     * @param serviceTime <code>serviceTime</code> of the response in
+     * microseconds.
+     * @param roundTrip time between the request and the response in
+     * microseconds.
+     */
+    public void service(long serviceTime, long roundTrip) {
+        dbTime.record(serviceTime);
+        networkTime.record(roundTrip - serviceTime);
+    }
+
+    /**
+     * Method counts new connection.
+     */
+    public void connected() {
+        connections.incrementAndGet();
+    }
+
+    /**
+     * Method counts closed connection.
+     */
+    public void disconnected() {
+        connections.decrementAndGet();
+    }
+
+    @Override
+    public long getRequests() {
+        long n = 0;
+        for (Operation o : operations.values()) {
+            n += o.requests.sum();
+        }
+        return n;
+    }
+
+    @Override
+    public long getErrors() {
+        long n = 0;
+        for (Operation o : operations.values()) {
+            n += o.errors.sum();
+        }
+        return n;
+    }
+
+    @Override
+    public int getInFlight() {
+        int n = 0;
+        for (Operation o : operations.values()) {
+            n += o.inFlight.get();
+        }
+        return n;
+    }
+
+    @Override
+    public int getConnections() {
+        return connections.get();
+    }
+
+    @Override
+    public String getReport() {
+        return report();
+    }
+
+    @Override
+    public long percentile(String operation, double percent) {
+        Operation o = operations.get(operation);
+        return o == null ? -1 : o.latency.getPercentile(percent);
+    }
+
+    /**
+     * Method returns all metrics in Prometheus text format, one value per
+     * line, for example:<br>
+     * <code>jhelp_latency_us{server="Server",operation="SELECT",quantile="0.99"} 240</code>
+     *
+     * @return text form of metrics.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        String server = "server=\"" + name + "\"";
+        for (Map.Entry<String, Operation> e : operations.entrySet()) {
+            String labels = server + ",operation=\"" + e.getKey() + "\"";
+            Operation o = e.getValue();
+            line(sb, "jhelp_requests", labels, o.requests.sum());
+            line(sb, "jhelp_errors", labels, o.errors.sum());
+            line(sb, "jhelp_in_flight", labels, o.inFlight.get());
+            histogram(sb, "jhelp_latency_us", labels, o.latency);
+        }
+        line(sb, "jhelp_connections", server, connections.get());
+        if (dbTime.getCount() > 0) {
+            histogram(sb, "jhelp_db_time_us", server, dbTime);
+            histogram(sb, "jhelp_network_time_us", server, networkTime);
+        }
+        return sb.toString();
+    }
+
+    private static void line(StringBuilder sb, String metric, String labels,
+            long value) {
+        sb.append(metric).append('{').append(labels).append("} ")
+                .append(value).append('\n');
+    }
+
+    private static void histogram(StringBuilder sb, String metric,
+            String labels, Histogram histogram) {
+        for (String q : new String[]{"0.5", "0.9", "0.99", "0.999"}) {
+            line(sb, metric, labels + ",quantile=\"" + q + "\"",
+                    histogram.getPercentile(Double.parseDouble(q) * 100));
+        }
+        line(sb, metric + "_max", labels, histogram.getMax());
+        line(sb, metric + "_mean", labels, histogram.getMean());
+        line(sb, metric + "_count", labels, histogram.getCount());
+    }
+
+    /**
+     * Method registers the object as JMX MBean
+     * <code>jhelp:type=Metrics,name=...</code> in platform MBean server.
+     */
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName("jhelp:type=Metrics,name=" + name));
+        } catch (JMException ex) {
+            showMessage("register(): " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Method opens metrics port. Every connection to the port gets
+     * {@link #report()} as HTTP response and is closed, so the port can be
+     * read by Prometheus, curl or telnet.
+     *
+     * @param port metrics port.
+     */
+    public void serve(int port) {
+        try {
+            scrapeSocket = new ServerSocket(port);
+        } catch (IOException ex) {
+            showMessage("serve(port): " + ex.getMessage());
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            while (!scrapeSocket.isClosed()) {
+                try (Socket socket = scrapeSocket.accept()) {
+                    scrape(socket);
+                } catch (IOException ex) {
+                    if (!scrapeSocket.isClosed()) {
+                        showMessage("serve(port): " + ex.getMessage());
+                    }
+                }
+            }
+        }, "Metrics " + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void scrape(Socket socket) throws IOException {
+        socket.setSoTimeout(1000);
+        BufferedReader in = new BufferedReader(new InputStreamReader(
+                socket.getInputStream(), StandardCharsets.US_ASCII));
+        try {
+            /*request of HTTP client ends with empty line*/
+            String line;
+            while ((line = in.readLine()) != null && !line.isEmpty()) {
+            }
+        } catch (SocketTimeoutException ex) {
+            /*plain TCP client sends nothing*/
+        }
+        byte[] body = report().getBytes(StandardCharsets.UTF_8);
+        OutputStream out = socket.getOutputStream();
+        out.write(("HTTP/1.0 200 OK\r\nContent-Type: text/plain; version=0.0.4"
+                + "\r\nContent-Length: " + body.length + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        out.write(body);
+        out.flush();
+    }
+
+    /**
+     * Method closes metrics port.
+     */
+    public void close() {
+        try {
+            if (scrapeSocket != null) {
+                scrapeSocket.close();
+            }
+        } catch (IOException ex) {
+            showMessage("close(): " + ex.getMessage());
+        }
+    }
+
+    private void showMessage(String msg) {
+        System.out.println("MetricsError: " + msg);
+    }
+}
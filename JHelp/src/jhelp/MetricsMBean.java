@@ -0,0 +1,59 @@
+/*
+ * Interface MetricsMBean.
+ */
+package jhelp;
+
+/**
+ * This interface defines JMX view of {@link Metrics} object. Latencies are
+ * given in microseconds.
+ *
+ * @version 1.0
+ * @see jhelp.Metrics
+ */
+public interface MetricsMBean {
+
+    /**
+     * Method returns number of finished requests of all operations.
+     *
+     * @return number of requests.
+     */
+    long getRequests();
+
+    /**
+     * Method returns number of failed requests of all operations.
+     *
+     * @return number of errors.
+     */
+    long getErrors();
+
+    /**
+     * Method returns number of requests in progress.
+     *
+     * @return number of requests in flight.
+     */
+    int getInFlight();
+
+    /**
+     * Method returns number of open connections.
+     *
+     * @return number of connections.
+     */
+    int getConnections();
+
+    /**
+     * Method returns all metrics in text form, see {@link Metrics#report()}.
+     *
+     * @return text form of metrics.
+     */
+    String getReport();
+
+    /**
+     * Method returns percentile of latency of the operation.
+     *
+     * @param operation name of operation, for example <code>SELECT</code>.
+     * @param percent percent of requests, for example 99.9.
+     * @return latency in microseconds or -1 (minus one) for unknown
+     * operation.
+     */
+    long percentile(String operation, double percent);
+}
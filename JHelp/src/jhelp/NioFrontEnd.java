@@ -0,0 +1,373 @@
+/*
+ * Class NioFrontEnd.
+ */
+package jhelp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * This class provides non-blocking network front end of {@link jhelp.Server}
+ * object. Unlike {@link jhelp.ClientThread} it doesn't use a thread per
+ * client: all connections are served by small number of event loops, every
+ * loop has own {@link java.nio.channels.Selector} object. So idle clients
+ * cost their buffers only.<br>
+ * The front end supports binary protocol only (see {@link DataLink} and
+ * {@link BinaryDataLink}) with compression of frames. Every complete frame is decoded by the event loop
+ * and is passed to {@link Server#getDataAsync(Data)} method. The response is
+ * returned to the event loop, which encodes and writes it. Responses of
+ * pipelined requests can be written in any order, they keep
+ * <code>requestId</code> of the requests.
+ *
+ * @version 1.0
+ * @see jhelp.Server
+ */
+public class NioFrontEnd implements Runnable {
+
+    /**
+     * Reading from connection is suspended while it has so many unsent
+     * responses.
+     */
+    private static final int MAX_QUEUED = 64;
+    private final Server server;
+    private final int port;
+    private final EventLoop[] loops;
+    private ServerSocketChannel serverChannel;
+    private int next;
+
+    /**
+     * Creates a new instance of <code>NioFrontEnd</code>.
+     *
+     * @param server reference to {@link Server} object.
+     * @param port port for client connections.
+     * @param loopCount number of event loops.
+     */
+    public NioFrontEnd(Server server, int port, int loopCount) {
+        this.server = server;
+        this.port = port;
+        this.loops = new EventLoop[Math.max(1, loopCount)];
+    }
+
+    /**
+     * Method opens the port and starts the event loops and the thread which
+     * accepts connections.
+     *
+     * @throws IOException if the port can't be opened.
+     */
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        for (int i = 0; i < loops.length; ++i) {
+            loops[i] = new EventLoop();
+            Thread t = new Thread(loops[i], "NIO loop " + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        Thread t = new Thread(this, "NIO acceptor");
+        t.setDaemon(true);
+        t.start();
+        System.out.println("SERVER: NIO front end on port " + port + ", "
+                + loops.length + " loops");
+    }
+
+    /**
+     * Job cycle of acceptor thread. Accepted connections are given to event
+     * loops in turn.
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            }
+        } catch (IOException ex) {
+            if (serverChannel.isOpen()) {
+                showMessage("run(): " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Method closes the port and all connections.
+     */
+    public void close() {
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException ex) {
+            showMessage("close(): " + ex.getMessage());
+        }
+        for (EventLoop loop : loops) {
+            if (loop != null) {
+                loop.close();
+            }
+        }
+    }
+
+    /**
+     * Event loop: single thread with own selector.
+     */
+    private class EventLoop implements Runnable {
+
+        private final Selector selector;
+        private final ConcurrentLinkedQueue<SocketChannel> accepted
+                = new ConcurrentLinkedQueue<>();
+        private final ConcurrentLinkedQueue<Connection> answered
+                = new ConcurrentLinkedQueue<>();
+        /**
+         * Codec of the loop, it is used by the loop thread only.
+         */
+        private final DataCodec codec = new DataCodec();
+        /**
+         * Compressor of the loop, it is used by the loop thread only.
+         */
+        private final Compressor compressor = new Compressor();
+
+        EventLoop() throws IOException {
+            selector = Selector.open();
+        }
+
+        void register(SocketChannel channel) {
+            accepted.add(channel);
+            selector.wakeup();
+        }
+
+        void answered(Connection connection) {
+            answered.add(connection);
+            selector.wakeup();
+        }
+
+        void close() {
+            try {
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                selector.close();
+            } catch (IOException | ClosedSelectorException ex) {
+                showMessage("close(): " + ex.getMessage());
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (selector.isOpen()) {
+                    selector.select();
+                    SocketChannel channel;
+                    while ((channel = accepted.poll()) != null) {
+                        try {
+                            SelectionKey key = channel.register(selector,
+                                    SelectionKey.OP_READ);
+                            key.attach(new Connection(this, key));
+                        } catch (IOException ex) {
+                            showMessage("run(): " + ex.getMessage());
+                            channel.close();
+                        }
+                    }
+                    Connection connection;
+                    while ((connection = answered.poll()) != null) {
+                        connection.flush();
+                    }
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        connection = (Connection) key.attachment();
+                        if (key.isValid() && key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    }
+                }
+            } catch (IOException | ClosedSelectorException ex) {
+                if (selector.isOpen()) {
+                    showMessage("run(): " + ex.getMessage());
+                }
+            } finally {
+                compressor.close();
+            }
+        }
+    }
+
+    /**
+     * State of single client connection. Buffers are used by thread of the
+     * event loop only, responses come from other threads through the queue.
+     */
+    private class Connection {
+
+        private final EventLoop loop;
+        private final SelectionKey key;
+        private final SocketChannel channel;
+        private ByteBuffer input = ByteBuffer.allocate(512);
+        private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+        private final ConcurrentLinkedQueue<Data> responses
+                = new ConcurrentLinkedQueue<>();
+        private boolean negotiated;
+        private int capabilities;
+        private int inFlight;
+
+        Connection(EventLoop loop, SelectionKey key) {
+            this.loop = loop;
+            this.key = key;
+            this.channel = (SocketChannel) key.channel();
+            server.getMetrics().connected();
+        }
+
+        void read() {
+            try {
+                if (channel.read(input) < 0) {
+                    close();
+                    return;
+                }
+                input.flip();
+                if (!negotiated) {
+                    if (input.remaining() < 8) {
+                        input.compact();
+                        return;
+                    }
+                    int magic = input.getInt();
+                    if (magic == DataLink.MAGIC_V1) {
+                        throw new IOException(
+                                "Client uses old version of binary protocol");
+                    }
+                    if (magic != DataLink.MAGIC) {
+                        throw new IOException("Client doesn't use binary protocol");
+                    }
+                    capabilities = input.getInt() & DataLink.CAPABILITIES;
+                    ByteBuffer answer = ByteBuffer.allocate(8);
+                    answer.putInt(DataLink.MAGIC).putInt(capabilities).flip();
+                    output.add(answer);
+                    negotiated = true;
+                }
+                while (input.remaining() >= 4) {
+                    int length = input.getInt(input.position());
+                    if (length < 1 || length > BinaryDataLink.MAX_FRAME) {
+                        throw new IOException("Invalid frame length: " + length);
+                    }
+                    if (input.remaining() < 4 + length) {
+                        if (input.capacity() < 4 + length) {
+                            ByteBuffer b = ByteBuffer.allocate(Math.max(4 + length,
+                                    input.capacity() * 2));
+                            b.put(input);
+                            input = b;
+                            input.flip();
+                        }
+                        break;
+                    }
+                    input.position(input.position() + 4);
+                    int flags = input.get();
+                    if ((flags & ~capabilities) != 0) {
+                        throw new IOException("Invalid frame flags: " + flags);
+                    }
+                    Data data;
+                    if ((flags & DataLink.COMPRESSION) != 0) {
+                        if (length < 5) {
+                            throw new IOException("Invalid frame length: " + length);
+                        }
+                        int rawLength = input.getInt();
+                        byte[] raw = loop.compressor.inflate(input.array(),
+                                input.arrayOffset() + input.position(), length - 5,
+                                rawLength);
+                        data = loop.codec.decode(raw, 0, rawLength);
+                        input.position(input.position() + length - 5);
+                    } else {
+                        data = loop.codec.decode(input.array(),
+                                input.arrayOffset() + input.position(), length - 1);
+                        input.position(input.position() + length - 1);
+                    }
+                    if (data.getOperation() == JHelp.DISCONNECT) {
+                        close();
+                        return;
+                    }
+                    ++inFlight;
+                    server.getDataAsync(data).thenAccept(response -> {
+                        responses.add(response);
+                        loop.answered(this);
+                    });
+                }
+                input.compact();
+                flush();
+            } catch (IOException ex) {
+                showMessage("read(): " + ex.getMessage());
+                close();
+            }
+        }
+
+        void flush() {
+            if (!key.isValid()) {
+                return;
+            }
+            Data data;
+            while ((data = responses.poll()) != null) {
+                --inFlight;
+                int length = loop.codec.encode(data);
+                int compressed = (capabilities & DataLink.COMPRESSION) == 0 ? -1
+                        : loop.compressor.deflate(loop.codec.buffer(), length);
+                ByteBuffer frame;
+                if (compressed < 0) {
+                    frame = ByteBuffer.allocate(length + 5);
+                    frame.putInt(length + 1).put((byte) 0)
+                            .put(loop.codec.buffer(), 0, length).flip();
+                } else {
+                    frame = ByteBuffer.allocate(compressed + 9);
+                    frame.putInt(compressed + 5).put((byte) DataLink.COMPRESSION)
+                            .putInt(length)
+                            .put(loop.compressor.deflated(), 0, compressed).flip();
+                }
+                output.add(frame);
+            }
+            try {
+                while (!output.isEmpty()) {
+                    ByteBuffer b = output.peek();
+                    channel.write(b);
+                    if (b.hasRemaining()) {
+                        break;
+                    }
+                    output.poll();
+                }
+            } catch (IOException ex) {
+                showMessage("flush(): " + ex.getMessage());
+                close();
+                return;
+            }
+            int ops = output.isEmpty() ? 0 : SelectionKey.OP_WRITE;
+            if (output.size() + inFlight < MAX_QUEUED) {
+                ops |= SelectionKey.OP_READ;
+            }
+            key.interestOps(ops);
+        }
+
+        void close() {
+            if (!channel.isOpen()) {
+                return;
+            }
+            server.getMetrics().disconnected();
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                showMessage("close(): " + ex.getMessage());
+            }
+        }
+    }
+
+    private void showMessage(String msg) {
+        System.out.println("NioFrontEndError: " + msg);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Class ObjectDataLink.
+ */
+package jhelp;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.net.Socket;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class transfers {@link Data} objects by Java serialization. It is the
+ * original protocol of JHelp and is kept for old clients.
+ *
+ * @version 1.0
+ * @see jhelp.DataLink
+ */
+public class ObjectDataLink implements DataLink {
+
+    private final Socket socket;
+    /**
+     * Writers are serialized by the lock instead of monitor of the stream,
+     * see {@link Threads}.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ObjectOutputStream output;
+    private final ObjectInputStream input;
+
+    /**
+     * Creates a new instance of <code>ObjectDataLink</code>. Output stream is
+     * opened first, so both sides can create the link at the same time.
+     *
+     * @param socket connected socket.
+     * @param in buffered input stream of the socket.
+     * @throws IOException if the streams can't be opened.
+     */
+    public ObjectDataLink(Socket socket, InputStream in) throws IOException {
+        this.socket = socket;
+        output = new ObjectOutputStream(
+                new BufferedOutputStream(socket.getOutputStream()));
+        output.flush();
+        input = new ObjectInputStream(in);
+    }
+
+    @Override
+    public Data read() throws IOException {
+        try {
+            Object obj = input.readObject();
+            if (!(obj instanceof Data)) {
+                throw new StreamCorruptedException("Recived invalid Data");
+            }
+            return (Data) obj;
+        } catch (ClassNotFoundException ex) {
+            throw new StreamCorruptedException(ex.getMessage());
+        }
+    }
+
+    @Override
+    public void write(Data data) throws IOException {
+        writeLock.lock();
+        try {
+            output.writeObject(data);
+            output.reset();
+            output.flush();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Class PrefixIndex.
+ */
+package jhelp;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * This class presents in-memory sorted index of terms for {@link JHelp#PREFIX}
+ * operation. Terms are kept in skip list, so search of first terms with
+ * given prefix costs logarithmic time and doesn't block changes of the index.
+ *
+ * @version 1.0
+ * @see jhelp.ServerDb
+ */
+public class PrefixIndex implements DictionaryIndex {
+
+    private final ConcurrentSkipListMap<String, Integer> terms
+            = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Integer, String> names
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Method returns first terms with given prefix in alphabetical order.
+     *
+     * @param prefix prefix of terms, nothing is found for <code>null</code>.
+     * @param limit maximal number of terms.
+     * @return array of found terms. Identificator of every item is
+     * identificator of the term.
+     */
+    public Item[] find(String prefix, int limit) {
+        if (prefix == null) {
+            return new Item[0];
+        }
+        ArrayList<Item> list = new ArrayList<>(Math.min(limit, 64));
+        for (Map.Entry<String, Integer> e : terms.tailMap(prefix).entrySet()) {
+            if (list.size() >= limit || !e.getKey().startsWith(prefix)) {
+                break;
+            }
+            list.add(new Item(e.getValue(), e.getKey(), JHelp.ORIGIN));
+        }
+        return list.toArray(new Item[list.size()]);
+    }
+
+    @Override
+    public synchronized void put(Data data) {
+        String term = data.getKey().getItem();
+        String old = names.put(data.getKey().getId(), term);
+        terms.put(term, data.getKey().getId());
+        if (old != null && !old.equals(term)) {
+            terms.remove(old);
+        }
+    }
+
+    @Override
+    public synchronized void remove(int idTerm) {
+        String old = names.remove(idTerm);
+        if (old != null) {
+            terms.remove(old);
+        }
+    }
+}
@@ -8,12 +8,19 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ArrayList;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.net.ssl.SSLServerSocket;
@@ -40,15 +47,72 @@ public class Server implements JHelp {
      */
     private Socket clientSocket;
     /**
-     *
-     */
-    private ObjectInputStream input;
-    /**
-     *
+     * Connection with {@link ServerDb} object.
      */
-    private ObjectOutputStream output;
+    private DataLink dbLink;
 
     private Socket dbSocket;
+    /**
+     * Requests sent to {@link ServerDb} and still waiting for a response,
+     * mapped by correlation identificator.
+     */
+    private final ConcurrentHashMap<Long, CompletableFuture<Data>> pending
+            = new ConcurrentHashMap<>();
+    private final AtomicLong requestIds = new AtomicLong();
+    /**
+     * <code>true</code> after connection with {@link ServerDb} object is
+     * lost. New requests fail at once.
+     */
+    private volatile boolean closed;
+    /**
+     * Maximal time in milliseconds of waiting for response of
+     * {@link ServerDb} object, 0 (zero) if the time isn't limited.
+     */
+    private long requestTimeout = 30000;
+    /**
+     * Timer of requests waiting for response.
+     */
+    private final ScheduledExecutorService timer
+            = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "Server request timer");
+                t.setDaemon(true);
+                return t;
+            });
+    /**
+     * Cache of SELECT results. It is <code>null</code> if the cache is
+     * switched off.
+     */
+    private TermCache cache;
+    private int cacheSize = 10000;
+    private long cacheTtl = 60000;
+    /**
+     * Protocol of connection with {@link ServerDb} object.
+     */
+    private String dbProtocol = DataLink.BINARY;
+    /**
+     * Compression of binary frames on connection with {@link ServerDb}
+     * object.
+     */
+    private boolean dbCompression = true;
+    /**
+     * Metrics of requests and connections, see {@link Metrics}.
+     */
+    private final Metrics metrics = new Metrics("Server");
+    /**
+     * Port of metrics in text form, 0 if the port is switched off.
+     */
+    private int metricsPort;
+    /**
+     * Port of non-blocking front end, 0 if the front end is switched off.
+     */
+    private int nioPort;
+    private int nioLoops = Runtime.getRuntime().availableProcessors();
+    private NioFrontEnd nio;
+    /**
+     * Threads of {@link ClientThread} objects: {@link Threads#PLATFORM} or
+     * {@link Threads#VIRTUAL}.
+     */
+    private String threadMode = Threads.PLATFORM;
     private Properties prop;
     private int port;
     private int dbPort;
@@ -91,7 +155,12 @@ public class Server implements JHelp {
      */
     private void run() {
         ArrayList<ClientThread> clients = new ArrayList();
+        ThreadFactory threads = Threads.factory(threadMode, "ClientThread");
         try {
+            if (nioPort > 0) {
+                nio = new NioFrontEnd(this, nioPort, nioLoops);
+                nio.start();
+            }
             while (true) {
                 System.out.println("SERVER: run");
 
@@ -101,8 +170,7 @@ public class Server implements JHelp {
                 clientSocket = serverSocket.accept();
                 ClientThread ct = new ClientThread(this, clientSocket);
                 clients.add(ct);
-                Thread t = new Thread(ct);
-                t.start();
+                threads.newThread(ct).start();
             }
         } catch (IOException ex) {
             showMessage("run(): " + ex.getMessage());
@@ -140,12 +208,23 @@ public class Server implements JHelp {
     public int connect(String[] args) {
         System.out.println("SERVER: connect");
         getConfig(args);
+        if (cacheSize > 0) {
+            cache = new TermCache(cacheSize, cacheTtl);
+        }
         int flag = OK;
         try {
             serverSocket = new ServerSocket(port);
             dbSocket = new Socket(dbHost, dbPort);
-            output = new ObjectOutputStream(dbSocket.getOutputStream());
-            input = new ObjectInputStream(dbSocket.getInputStream());
+            dbLink = DataLink.connect(dbSocket, dbProtocol,
+                    dbCompression ? DataLink.CAPABILITIES
+                            : DataLink.CAPABILITIES & ~DataLink.COMPRESSION);
+            Thread reader = new Thread(this::readResponses, "ServerDb reader");
+            reader.setDaemon(true);
+            reader.start();
+            metrics.register();
+            if (metricsPort > 0) {
+                metrics.serve(metricsPort);
+            }
         } catch (IOException ex) {
             flag = ERROR;
             showMessage("coonnect(args): " + ex.getMessage());
@@ -156,24 +235,215 @@ public class Server implements JHelp {
     /**
      * Transports initial {@link Data} object from {@link ClientThread} object
      * to {@link ServerDb} object and returns modified {@link Data} object to
-     * {@link ClientThread} object.
+     * {@link ClientThread} object. Requests of different client threads are
+     * not serialized: every request gets own correlation identificator and
+     * waits only for its own response.
      *
      * @param data Initial {@link Data} object which was obtained from client
      * application.
      * @return modified {@link Data} object
+     * @see #getDataAsync(Data)
      */
-    public synchronized Data getData(Data data) {
+    public Data getData(Data data) {
         System.out.println("SERVER:getData()");
+        return getDataAsync(data).join();
+    }
+
+    /**
+     * Passes request to {@link ServerDb} object without waiting for response.
+     * SELECT requests are served from {@link TermCache} object if possible,
+     * the response is {@link JHelp#NOT_MODIFIED} if the request has version
+     * of cached term. Whole data of terms is cached, pages requested by
+     * <code>cursor</code> and <code>limit</code> are cut from it. On a cache
+     * miss <code>cursor</code> and <code>limit</code> are passed to
+     * {@link ServerDb} object, so large terms are read by pages and only
+     * responses which contain all definitions are cached. INSERT,
+     * UPDATE and DELETE requests invalidate the term in the cache.
+     * This method is used by {@link NioFrontEnd} and {@link ClientThread}
+     * objects, which don't wait for a response before next request.
+     *
+     * @param data Initial {@link Data} object which was obtained from client
+     * application.
+     * @return future modified {@link Data} object. The future is never
+     * completed exceptionally: if {@link ServerDb} object is not available
+     * the response has {@link JHelp#DISCONNECT} operation, if it doesn't
+     * respond in <code>requestTimeout</code> milliseconds the response has
+     * {@link JHelp#ERROR} operation.
+     */
+    @Override
+    public CompletableFuture<Data> getDataAsync(Data data) {
+        int operation = data.getOperation();
+        long start = metrics.start(operation);
+        String term = TermCache.normalize(data.getKey().getItem());
+        long stamp = 0;
+        int cursor = data.getCursor();
+        int limit = data.getLimit();
+        if (cache != null && operation == SELECT) {
+            Data cached = cache.get(term);
+            if (cached != null) {
+                if (data.getVersion() != 0
+                        && data.getVersion() == cached.getVersion()
+                        && data.getKey().getId() == cached.getKey().getId()) {
+                    cached = ServerDb.notModified(data);
+                } else {
+                    cached = ServerDb.page(cached, cursor, limit);
+                }
+                cached.setRequestId(data.getRequestId());
+                metrics.finish(operation, start, false);
+                return CompletableFuture.completedFuture(cached);
+            }
+            stamp = cache.stamp();
+        }
+        long cacheStamp = stamp;
+        int idTerm = data.getKey().getId();
+        return send(data).handle((response, ex) -> {
+            if (ex != null) {
+                metrics.finish(operation, start, true);
+                Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+                data.setOperation(cause instanceof TimeoutException
+                        ? ERROR : DISCONNECT);
+                showMessage("getDataAsync(data): " + ex.getMessage());
+                return data;
+            }
+            long micros = metrics.finish(operation, start,
+                    response.getOperation() == ERROR);
+            metrics.service(response.getServiceTime(), micros);
+            if (cache != null) {
+                if (operation == SELECT) {
+                    if (response.getOperation() != ERROR
+                            && response.getOperation() != NOT_MODIFIED
+                            && isWhole(response)) {
+                        cache.put(term, response, cacheStamp);
+                        return ServerDb.page(response, cursor, limit);
+                    }
+                } else if (operation == INSERT || operation == UPDATE
+                        || operation == DELETE) {
+                    cache.invalidate(term, idTerm);
+                } else if (operation == BATCH && data.getBatch() != null) {
+                    for (Data op : data.getBatch()) {
+                        if (op.getKey() == null) {
+                            continue;
+                        }
+                        cache.invalidate(TermCache.normalize(
+                                op.getKey().getItem()), op.getKey().getId());
+                    }
+                }
+            }
+            return response;
+        });
+    }
+
+    /**
+     * Method returns <code>true</code> if the response has all definitions of
+     * the term or the term is unknown. Only such responses are cached, pages
+     * of large terms are passed to client without caching.
+     */
+    private static boolean isWhole(Data response) {
+        Item[] values = response.getValues();
+        return response.getKey().getId() == ERROR || (values != null
+                && response.getCursor() == 0
+                && values.length == response.getTotal());
+    }
+
+    /**
+     * Sends request to {@link ServerDb} object without waiting for response.
+     * The request fails at once if connection with {@link ServerDb} object
+     * is lost and fails with {@link TimeoutException} if the response doesn't
+     * come in <code>requestTimeout</code> milliseconds.
+     *
+     * @param data request to database.
+     * @return future response of database. The response has the same
+     * <code>requestId</code> as the request.
+     */
+    private CompletableFuture<Data> send(Data data) {
+        CompletableFuture<Data> response = new CompletableFuture<>();
+        if (closed) {
+            response.completeExceptionally(
+                    new IOException("ServerDb disconnected"));
+            return response;
+        }
+        long clientId = data.getRequestId();
+        long id = requestIds.incrementAndGet();
+        pending.put(id, response);
+        if (closed) {
+            /*reader has failed pending requests before this one was put*/
+            fail(id, new IOException("ServerDb disconnected"));
+            return response;
+        }
+        if (requestTimeout > 0) {
+            ScheduledFuture<?> timeout = timer.schedule(() -> fail(id,
+                    new TimeoutException("No response of ServerDb in "
+                            + requestTimeout + " ms")),
+                    requestTimeout, TimeUnit.MILLISECONDS);
+            response.whenComplete((d, ex) -> timeout.cancel(false));
+        }
+        data.setRequestId(id);
         try {
-            output.writeObject(data);
-            data = (Data) input.readObject();
-        } catch (IOException | ClassNotFoundException ex) {
-            serverSocket.close();
-            data.setOperation(DISCONNECT);
-            showMessage("getData(data): " + ex.getMessage());
-            serverSocket.close();
+            dbLink.write(data);
+        } catch (IOException ex) {
+            fail(id, ex);
         } finally {
-            return data;
+            data.setRequestId(clientId);
+        }
+        return response.thenApply(d -> {
+            d.setRequestId(clientId);
+            return d;
+        });
+    }
+
+    /**
+     * Job cycle of reader thread. The method reads responses of
+     * {@link ServerDb} object in any order and passes them to waiting
+     * requests. Change notifications invalidate terms in the cache, so the
+     * cache sees changes made through other {@link Server} objects too.
+     */
+    private void readResponses() {
+        try {
+            while (true) {
+                Data data = dbLink.read();
+                if (data.getOperation() == DISCONNECT) {
+                    throw new IOException("ServerDb disconnected");
+                }
+                if (data.getOperation() == NOTIFY) {
+                    if (cache != null) {
+                        cache.invalidate(TermCache.normalize(
+                                data.getKey().getItem()), data.getKey().getId());
+                    }
+                    continue;
+                }
+                CompletableFuture<Data> response = pending.remove(data.getRequestId());
+                if (response == null) {
+                    showMessage("readResponses(): unexpected response "
+                            + data.getRequestId());
+                } else {
+                    response.complete(data);
+                }
+            }
+        } catch (IOException ex) {
+            showMessage("readResponses(): " + ex.getMessage());
+        }
+        closed = true;
+        try {
+            dbLink.close();
+            serverSocket.close();
+        } catch (IOException ex) {
+            showMessage("readResponses(): " + ex.getMessage());
+        }
+        for (Long id : pending.keySet()) {
+            fail(id, new IOException("ServerDb disconnected"));
+        }
+    }
+
+    /**
+     * Method completes waiting request exceptionally, if it is still waiting.
+     *
+     * @param id correlation identificator of the request.
+     * @param ex reason of the failure.
+     */
+    private void fail(long id, Exception ex) {
+        CompletableFuture<Data> response = pending.remove(id);
+        if (response != null) {
+            response.completeExceptionally(ex);
         }
     }
 
@@ -186,16 +456,29 @@ public class Server implements JHelp {
      */
     public int disconnect() {
         System.out.println("SERVER: disconnect");
+        if (cache != null) {
+            System.out.println("SERVER: " + cache);
+        }
+        System.out.println("SERVER: " + Compressor.statistics());
+        metrics.close();
+        timer.shutdownNow();
+        if (nio != null) {
+            nio.close();
+        }
         Data disconnect = new Data();
         disconnect.setOperation(DISCONNECT);
 
         int flag = OK;
         try {
             if (!dbSocket.isClosed()) {
-                output.writeObject(disconnect);
+                dbLink.write(disconnect);
                 serverSocket.close();
             }
-            dbSocket.close();
+            if (dbLink != null) {
+                dbLink.close();
+            } else {
+                dbSocket.close();
+            }
         } catch (IOException ex) {
             showMessage("disconnect(): " + ex.getMessage());
             flag = ERROR;
@@ -226,9 +509,52 @@ public class Server implements JHelp {
         if (sp != null && sp.matches("\\d++")) {
             dbPort = Integer.valueOf(sp);
         }
+        sp = prop.getProperty("cacheSize");
+        if (sp != null && sp.matches("\\d++")) {
+            cacheSize = Integer.valueOf(sp);
+        }
+        sp = prop.getProperty("cacheTtl");
+        if (sp != null && sp.matches("\\d++")) {
+            cacheTtl = Long.valueOf(sp);
+        }
+        sp = prop.getProperty("dbProtocol");
+        if (sp != null) {
+            dbProtocol = sp.trim();
+        }
+        dbCompression = Boolean.parseBoolean(
+                prop.getProperty("dbCompression", "true"));
+        sp = prop.getProperty("threads");
+        if (sp != null) {
+            threadMode = sp.trim();
+        }
+        sp = prop.getProperty("nioPort");
+        if (sp != null && sp.matches("\\d++")) {
+            nioPort = Integer.valueOf(sp);
+        }
+        sp = prop.getProperty("metricsPort");
+        if (sp != null && sp.matches("\\d++")) {
+            metricsPort = Integer.valueOf(sp);
+        }
+        sp = prop.getProperty("requestTimeout");
+        if (sp != null && sp.matches("\\d++")) {
+            requestTimeout = Long.valueOf(sp);
+        }
+        sp = prop.getProperty("nioLoops");
+        if (sp != null && sp.matches("\\d++")) {
+            nioLoops = Integer.valueOf(sp);
+        }
         return prop;
     }
 
+    /**
+     * Method returns metrics of the server.
+     *
+     * @return metrics of requests and connections.
+     */
+    Metrics getMetrics() {
+        return metrics;
+    }
+
     private void showMessage(String msg) {
         System.out.println("ServerError: " + msg);
     }
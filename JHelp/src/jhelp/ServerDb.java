@@ -9,19 +9,39 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.sql.SQLNonTransientException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -49,16 +69,39 @@ import java.util.logging.Logger;
  *       String databaseURL = accessDBURLPrefix + filename + accessDBURLSuffix;
  *       return DriverManager.getConnection(databaseURL, "", "");
  *   }
- * </pre></code>
+ * </pre></code> If <code>storage</code> property is <code>log</code> the
+ * dictionary is kept in embedded {@link jhelp.LogStorage} instead of database.
  *
  * @author <strong >Y.D.Zakovryashin, 2009</strong>
  */
 public class ServerDb implements JHelp {
 
     private ServerSocket serverSocket;
-    private Socket clientSocket;
-    private ObjectInputStream input;
-    private ObjectOutputStream output;
+    /**
+     * Connections of all attached {@link jhelp.Server} objects.
+     */
+    private final CopyOnWriteArrayList<ServerDbThread> connections
+            = new CopyOnWriteArrayList<>();
+    /**
+     * Metrics of requests and connections, see {@link Metrics}.
+     */
+    private final Metrics metrics = new Metrics("ServerDb");
+    /**
+     * Port of metrics in text form, 0 if the port is switched off.
+     */
+    private int metricsPort;
+    /**
+     * Worker pool for request processing.
+     */
+    private ExecutorService workers;
+    private int workerCount = Runtime.getRuntime().availableProcessors();
+    private int queueSize = 1024;
+    /**
+     * Threads of connections and workers: {@link Threads#PLATFORM} or
+     * {@link Threads#VIRTUAL}.
+     */
+    private String threadMode = Threads.PLATFORM;
+    private ThreadFactory threads;
     private InputStream is;
     private OutputStream os;
 
@@ -71,9 +114,162 @@ public class ServerDb implements JHelp {
     private String dbHost;
     private String dbName;
     private String url;
-    private Connection con;
-    private Statement st;
-    private ResultSet rs;
+    /**
+     * Parameterized SQL texts. Every text is prepared once per connection.
+     */
+    private static final String SELECT_SQL
+            = "SELECT TBLTERMS.ID, TERM, TBLDEFINITIONS.ID, DEFINITION "
+            + "FROM TBLTERMS JOIN TBLDEFINITIONS "
+            + "ON TBLTERMS.ID = TBLDEFINITIONS.TERM_ID AND TERM = ? "
+            + "ORDER BY TBLDEFINITIONS.ID";
+    private static final String COUNT_TERM_SQL
+            = "SELECT TBLTERMS.ID, COUNT(*) FROM TBLTERMS JOIN TBLDEFINITIONS "
+            + "ON TBLTERMS.ID = TBLDEFINITIONS.TERM_ID AND TERM = ? "
+            + "GROUP BY TBLTERMS.ID";
+    /**
+     * Keyset page of definitions. One extra row shows that more definitions
+     * follow the page.
+     */
+    private static final String PAGE_SQL
+            = "SELECT ID, DEFINITION FROM TBLDEFINITIONS "
+            + "WHERE TERM_ID = ? AND ID > ? ORDER BY ID FETCH FIRST ? ROWS ONLY";
+    private static final String SELECT_ALL_SQL
+            = "SELECT TBLTERMS.ID, TERM, TBLDEFINITIONS.ID, DEFINITION "
+            + "FROM TBLTERMS JOIN TBLDEFINITIONS "
+            + "ON TBLTERMS.ID = TBLDEFINITIONS.TERM_ID "
+            + "ORDER BY TBLTERMS.ID, TBLDEFINITIONS.ID";
+    private static final String PREFIX_SQL
+            = "SELECT ID, TERM FROM TBLTERMS WHERE TERM LIKE ? ESCAPE '\\' "
+            + "ORDER BY TERM";
+    private static final String SEARCH_SQL
+            = "SELECT DISTINCT TBLTERMS.ID, TERM FROM TBLTERMS JOIN TBLDEFINITIONS "
+            + "ON TBLTERMS.ID = TBLDEFINITIONS.TERM_ID "
+            + "WHERE LOWER(DEFINITION) LIKE ? ESCAPE '\\'";
+    /**
+     * Maximal number of terms returned by {@link JHelp#PREFIX} and
+     * {@link JHelp#SEARCH} requests.
+     */
+    private static final int MAX_LIMIT = 100;
+    private static final String INSERT_TERM_SQL
+            = "INSERT INTO TBLTERMS VALUES (?, ?)";
+    private static final String INSERT_DEFINITION_SQL
+            = "INSERT INTO TBLDEFINITIONS VALUES (?, ?, ?)";
+    private static final String UPDATE_TERM_SQL
+            = "UPDATE TBLTERMS SET TERM = ? WHERE ID = ?";
+    private static final String UPDATE_DEFINITION_SQL
+            = "UPDATE TBLDEFINITIONS SET DEFINITION = ? WHERE ID = ?";
+    private static final String REPLACE_DEFINITION_SQL
+            = "UPDATE TBLDEFINITIONS SET DEFINITION = ?, TERM_ID = ? WHERE ID = ?";
+    /**
+     * SQL state of duplicate key error.
+     */
+    private static final String DUPLICATE_KEY = "23505";
+    /**
+     * Sizes of <code>TERM</code> and <code>DEFINITION</code> columns.
+     */
+    private static final int MAX_TERM = 128;
+    private static final int MAX_DEFINITION = 4000;
+    private static final String COUNT_DEFINITIONS_SQL
+            = "SELECT COUNT(*) FROM TBLDEFINITIONS WHERE TERM_ID = ?";
+    private static final String TERM_NAME_SQL
+            = "SELECT TERM FROM TBLTERMS WHERE ID = ?";
+    /**
+     * Number of terms looked up by single {@link #LOOKUP_SQL} statement.
+     */
+    private static final int LOOKUP_SIZE = 32;
+    private static final String LOOKUP_SQL;
+
+    static {
+        StringBuilder sb = new StringBuilder(
+                "SELECT ID, TERM FROM TBLTERMS WHERE TERM IN (?");
+        for (int i = 1; i < LOOKUP_SIZE; ++i) {
+            sb.append(", ?");
+        }
+        LOOKUP_SQL = sb.append(')').toString();
+    }
+    /**
+     * Pool of database connections. Every request borrows own connection.
+     */
+    private ConnectionPool pool;
+    private int poolMin = 2;
+    private int poolMax = workerCount;
+    private long poolTimeout = 5000;
+    private long poolIdle = 60000;
+    /**
+     * Embedded log storage. It is used instead of database if
+     * <code>storage</code> property is <code>log</code>, otherwise it is
+     * <code>null</code>.
+     */
+    private LogStorage log;
+    private String storage = "jdbc";
+    private String logFile = "JHelpDictionary.log";
+    private boolean logSync = true;
+    /**
+     * Write-ahead journal of changes. It is <code>null</code> if
+     * <code>journal</code> property isn't <code>true</code>.
+     */
+    private Journal journal;
+    private boolean journalEnabled;
+    private String journalFile = "JHelpJournal.log";
+    private boolean journalSync = true;
+    private int journalBatch = 1000;
+    /**
+     * Allocators of identificators for new terms and definitions.
+     */
+    private IdAllocator termIds;
+    private IdAllocator definitionIds;
+    private int idBlock = 1000;
+    private boolean idSequence = true;
+    /**
+     * Locks for changes of terms. Changes of the same term are made one by
+     * one, so the same term is never inserted twice. Different terms are
+     * changed in parallel. The locks don't pin virtual threads while the
+     * change waits for database.
+     */
+    private final ReentrantLock[] termLocks = new ReentrantLock[64];
+    /**
+     * In-memory indexes of the dictionary. Every index is loaded at start
+     * and is updated after every committed change.
+     */
+    private final ArrayList<DictionaryIndex> indexes = new ArrayList<>();
+    /**
+     * Index of terms for SELECT requests. It is <code>null</code> if the
+     * index is switched off.
+     */
+    private TermIndex termIndex;
+    /**
+     * Index of terms for PREFIX requests. It is <code>null</code> if the
+     * index is switched off.
+     */
+    private PrefixIndex prefixIndex;
+    /**
+     * Index of close terms for unknown terms of SELECT requests. It is
+     * <code>null</code> if the index is switched off.
+     */
+    private FuzzyIndex fuzzyIndex;
+    private int fuzzyDistance = 2;
+    /**
+     * Inverted index of definitions for SEARCH requests. It is
+     * <code>null</code> if the index is switched off.
+     */
+    private TextIndex textIndex;
+    /**
+     * Version of the dictionary. It is increased on every committed change.
+     * Versions start from current time, so versions of every run are greater
+     * than versions given by previous runs.
+     */
+    private final AtomicLong version
+            = new AtomicLong(System.currentTimeMillis() * 1000);
+    /**
+     * Version of terms which weren't changed since start.
+     */
+    private final long startVersion = version.get();
+    /**
+     * Versions of terms changed since start by identificators of the terms.
+     * Versions of deleted terms are kept, so they are never valid again.
+     */
+    private final ConcurrentHashMap<Integer, Long> termVersions
+            = new ConcurrentHashMap<>();
 
     /**
      * Creates a new instance of <code>ServerDb</code> with default parameters.
@@ -113,15 +309,93 @@ public class ServerDb implements JHelp {
         password = prop.getProperty("password");
         dbName = prop.getProperty("dbName");
         dbHost = prop.getProperty("dbHost");
-        url = dbHost + ":" + port + "/" + dbName;
         String sp = prop.getProperty("port");
         if (sp != null && sp.matches("\\d++")) {
             port = Integer.valueOf(sp);
         }
+        /*full url, for example of embedded database, replaces host and port*/
+        url = prop.getProperty("url", dbHost + ":" + port + "/" + dbName);
         sp = prop.getProperty("serverPort");
         if (sp != null && sp.matches("\\d++")) {
             serverPort = Integer.valueOf(sp);
         }
+        sp = prop.getProperty("workers");
+        if (sp != null && sp.matches("\\d++") && Integer.valueOf(sp) > 0) {
+            workerCount = Integer.valueOf(sp);
+        }
+        sp = prop.getProperty("threads");
+        if (sp != null) {
+            threadMode = sp.trim();
+        }
+        sp = prop.getProperty("queueSize");
+        if (sp != null && sp.matches("\\d++") && Integer.valueOf(sp) > 0) {
+            queueSize = Integer.valueOf(sp);
+        }
+        poolMax = workerCount;
+        sp = prop.getProperty("poolMin");
+        if (sp != null && sp.matches("\\d++")) {
+            poolMin = Integer.valueOf(sp);
+        }
+        sp = prop.getProperty("poolMax");
+        if (sp != null && sp.matches("\\d++") && Integer.valueOf(sp) > 0) {
+            poolMax = Integer.valueOf(sp);
+        }
+        sp = prop.getProperty("poolTimeout");
+        if (sp != null && sp.matches("\\d++")) {
+            poolTimeout = Long.valueOf(sp);
+        }
+        sp = prop.getProperty("poolIdle");
+        if (sp != null && sp.matches("\\d++")) {
+            poolIdle = Long.valueOf(sp);
+        }
+        sp = prop.getProperty("idBlock");
+        if (sp != null && sp.matches("\\d++") && Integer.valueOf(sp) > 0) {
+            idBlock = Integer.valueOf(sp);
+        }
+        idSequence = !"max".equals(prop.getProperty("idSource"));
+        sp = prop.getProperty("storage");
+        if (sp != null) {
+            storage = sp.trim();
+        }
+        logFile = prop.getProperty("logFile", logFile);
+        logSync = Boolean.parseBoolean(prop.getProperty("logSync", "true"));
+        journalEnabled = Boolean.parseBoolean(prop.getProperty("journal"));
+        journalFile = prop.getProperty("journalFile", journalFile);
+        journalSync = Boolean.parseBoolean(prop.getProperty("journalSync", "true"));
+        sp = prop.getProperty("journalBatch");
+        if (sp != null && sp.matches("\\d++") && Integer.valueOf(sp) > 0) {
+            journalBatch = Integer.valueOf(sp);
+        }
+        if (Boolean.parseBoolean(prop.getProperty("termIndex"))) {
+            termIndex = new TermIndex();
+            indexes.add(termIndex);
+        }
+        if (Boolean.parseBoolean(prop.getProperty("prefixIndex", "true"))) {
+            prefixIndex = new PrefixIndex();
+            indexes.add(prefixIndex);
+        }
+        if (Boolean.parseBoolean(prop.getProperty("fuzzyIndex", "true"))) {
+            fuzzyIndex = new FuzzyIndex();
+            indexes.add(fuzzyIndex);
+        }
+        if (Boolean.parseBoolean(prop.getProperty("textIndex", "true"))) {
+            textIndex = new TextIndex();
+            indexes.add(textIndex);
+        }
+        if (journalEnabled && termIndex == null) {
+            /*responses for changes are made from term index*/
+            System.out.println("SERVERDb: journal switches on term index");
+            termIndex = new TermIndex();
+            indexes.add(0, termIndex);
+        }
+        sp = prop.getProperty("metricsPort");
+        if (sp != null && sp.matches("\\d++")) {
+            metricsPort = Integer.valueOf(sp);
+        }
+        sp = prop.getProperty("fuzzyDistance");
+        if (sp != null && sp.matches("[12]")) {
+            fuzzyDistance = Integer.valueOf(sp);
+        }
         return prop;
 //        
     }
@@ -153,32 +427,37 @@ public class ServerDb implements JHelp {
     }
 
     /**
-     * Method defines job cycle for client request processing.
+     * Method defines job cycle for client request processing. Every attached
+     * {@link jhelp.Server} object is served by own {@link ServerDbThread}
+     * object, requests are processed by worker pool.
      */
     private void run() {
         System.out.println("SERVERDb: run");
 
         try {
             while (true) {
-                Object obj = input.readObject();
-                if (obj instanceof Data) {
-                    data = (Data) obj;
-                } else {
-                    System.out.println("Recived invalid Data");
-                    continue;
-                }
-                if (data.getOperation() == DISCONNECT) {
-                    clientSocket.close();
-                    throw new IOException("Client disconnected");
-                }
-                data = getData(data);
-                output.writeObject(data);
+                Socket socket = serverSocket.accept();
+                ServerDbThread connection = new ServerDbThread(this, socket);
+                connections.add(connection);
+                metrics.connected();
+                threads.newThread(connection).start();
             }
-        } catch (IOException | ClassNotFoundException ex) {
+        } catch (IOException ex) {
             showMessage("run(): " + ex.getMessage());
         }
     }
 
+    /**
+     * Removes closed connection from list of attached {@link jhelp.Server}
+     * objects.
+     *
+     * @param connection closed connection.
+     */
+    void remove(ServerDbThread connection) {
+        connections.remove(connection);
+        metrics.disconnected();
+    }
+
     /**
      *
      * @return error code. The method returns {@link JHelp#OK} if streams are
@@ -204,19 +483,61 @@ public class ServerDb implements JHelp {
         int flag = ERROR;
         Driver dr = null;
         try {
-            dr = DriverManager.getDriver(url);
-            if (dr != null) {
-                con = DriverManager.getConnection(url, user, password);
-                st = con.createStatement(ResultSet.TYPE_FORWARD_ONLY,
-                        ResultSet.CONCUR_UPDATABLE);
-
+            if ("log".equals(storage)) {
+                log = new LogStorage(new File(logFile), logSync);
+                if (!indexes.isEmpty()) {
+                    loadIndexes(log);
+                }
+            } else {
+                dr = DriverManager.getDriver(url);
+            }
+            if (log != null || dr != null) {
+                if (log == null) {
+                    pool = new ConnectionPool(url, user, password, poolMin,
+                            poolMax, poolTimeout, poolIdle);
+                    termIds = new IdAllocator("TBLTERMS", idBlock, idSequence);
+                    definitionIds = new IdAllocator("TBLDEFINITIONS", idBlock,
+                            idSequence);
+                    if (journalEnabled) {
+                        journal = new Journal(new File(journalFile),
+                                journalSync, journalBatch);
+                        System.out.println("SERVERDb: "
+                                + journal.replay(this::applyJournal)
+                                + " journal records are replayed");
+                    }
+                    if (!indexes.isEmpty()) {
+                        try (DbConnection con = pool.borrow()) {
+                            loadIndexes(con);
+                        }
+                    }
+                    if (journal != null) {
+                        journal.start(this::applyJournal);
+                    }
+                }
+                for (int i = 0; i < termLocks.length; ++i) {
+                    termLocks[i] = new ReentrantLock();
+                }
                 serverSocket = new ServerSocket(serverPort);
-                clientSocket = serverSocket.accept();
-                input = new ObjectInputStream(clientSocket.getInputStream());
-                output = new ObjectOutputStream(clientSocket.getOutputStream());
+                threads = Threads.factory(threadMode, "ServerDbThread");
+                if (Threads.isVirtual(threads)) {
+                    /*virtual thread per request, database connections are
+                    limited by the pool*/
+                    workers = Threads.perTask(
+                            Threads.factory(threadMode, "worker"));
+                }
+                if (workers == null) {
+                    workers = new ThreadPoolExecutor(workerCount, workerCount,
+                            0L, TimeUnit.MILLISECONDS,
+                            new ArrayBlockingQueue<Runnable>(queueSize),
+                            new ThreadPoolExecutor.CallerRunsPolicy());
+                }
+                metrics.register();
+                if (metricsPort > 0) {
+                    metrics.serve(metricsPort);
+                }
                 flag = READY;
             }
-        } catch (SQLException ex) {
+        } catch (SQLException | IOException ex) {
             flag = ERROR;
             showMessage("connect(args): " + ex.getMessage());
         } finally {
@@ -226,7 +547,13 @@ public class ServerDb implements JHelp {
     }
 
     /**
-     * Method returns result of client request to a database.
+     * Method returns result of client request to a database. Every request
+     * borrows own connection from the connection pool, so requests can be
+     * processed concurrently. If term index is switched on, SELECT requests
+     * are served from memory without database. If requested term is unknown
+     * the response contains close terms as <code>suggestions</code>. Leading
+     * and trailing spaces of terms are removed, except PREFIX and SEARCH
+     * requests.
      *
      * @param data object of {@link jhelp.Data} type with request to database.
      * @return object of {@link jhelp.Data} type with results of request to a
@@ -236,116 +563,1201 @@ public class ServerDb implements JHelp {
      */
     public Data getData(Data data) {
         System.out.println("SERVERDb: getData():");
-        String tblTerms = "TBLTERMS";
-        String tblDef = "TBLDEFINITIONS";
+        if (data.getOperation() == PREFIX) {
+            return prefix(data);
+        }
+        if (data.getOperation() == SEARCH) {
+            return search(data);
+        }
+        if (data.getOperation() == BATCH) {
+            if (data.getBatch() != null) {
+                for (Data op : data.getBatch()) {
+                    trim(op);
+                }
+            }
+            return batch(data);
+        }
+        trim(data);
+        if (data.getOperation() == SELECT) {
+            return select(data);
+        }
+        if (log != null) {
+            return logData(data);
+        }
+        if (journal != null) {
+            return journalData(data);
+        }
+        Data dbData;
+        try {
+            /*changes of the same term are made one by one*/
+            TreeSet<Integer> stripes = lock(data);
+            try (DbConnection con = pool.borrow()) {
+                dbData = change(con, data);
+            } finally {
+                unlock(stripes);
+            }
+        } catch (SQLException ex) {
+            showMessage("getData(data): " + ex.getMessage());
+            dbData = error(ex);
+        }
+        return dbData;
+    }
+
+    /**
+     * Method removes leading and trailing spaces of the term, so the term is
+     * stored and found by the same name as it is cached by {@link TermCache}
+     * objects.
+     *
+     * @param data request with the term as key.
+     */
+    private static void trim(Data data) {
+        if (data != null && data.getKey() != null
+                && data.getKey().getItem() != null) {
+            data.getKey().setItem(TermCache.normalize(data.getKey().getItem()));
+        }
+    }
+
+    /**
+     * Method executes SELECT request. If the request has <code>version</code>
+     * of the term and the term wasn't changed since the version, the response
+     * is {@link JHelp#NOT_MODIFIED} without definitions. Otherwise the
+     * response has current version of the term. The version is 0 (zero) if
+     * the term was changed while it was read, such response must not be
+     * cached. If the request has <code>limit</code> or <code>cursor</code>
+     * the response has one page of definitions, see {@link #page}.
+     *
+     * @param data SELECT request. Identificator of the key is identificator
+     * of cached term if <code>version</code> is set.
+     * @return response for the request.
+     */
+    private Data select(Data data) {
         String term = data.getKey().getItem();
-        String definition = data.getValue(0).getItem();
-        System.out.println("definition " + definition);
-        String sql;
-        int idTerm = ERROR;
-        int idDef = ERROR;
-        int fk = ERROR;
-        Data dbData = null;
+        if (data.getVersion() != 0 && data.getKey().getId() != ERROR
+                && data.getVersion() == termVersion(data.getKey().getId())) {
+            return notModified(data);
+        }
+        /*changes are published after commit, so a version which isn't
+        greater than the stamp was given before the term was read*/
+        long stamp = version.get();
+        Data dbData;
+        if (termIndex != null) {
+            dbData = page(termIndex.get(term), data.getCursor(), data.getLimit());
+        } else if (log != null) {
+            dbData = page(log.select(term), data.getCursor(), data.getLimit());
+        } else {
+            try (DbConnection con = pool.borrow()) {
+                dbData = data.getLimit() > 0
+                        ? setPage(con, term, data.getCursor(), data.getLimit())
+                        : page(setData(con, term), data.getCursor(), 0);
+            } catch (SQLException ex) {
+                showMessage("select(data): " + ex.getMessage());
+                return error(ex);
+            }
+        }
+        int idTerm = dbData.getKey().getId();
+        if (idTerm != ERROR) {
+            long v = termVersion(idTerm);
+            dbData.setVersion(v <= stamp ? v : 0);
+        }
+        return suggest(dbData, term);
+    }
+
+    private long termVersion(int idTerm) {
+        return termVersions.getOrDefault(idTerm, startVersion);
+    }
+
+    /**
+     * Method passes request to worker pool and returns without waiting for
+     * result. Time from this call to the result, including waiting in queue
+     * of the pool, is <code>serviceTime</code> of the result.
+     *
+     * @param data object of {@link jhelp.Data} type with request to database.
+     * @return future result of {@link #getData(Data)} method.
+     */
+    @Override
+    public CompletableFuture<Data> getDataAsync(Data data) {
+        int operation = data.getOperation();
+        long start = metrics.start(operation);
         try {
+            return CompletableFuture.supplyAsync(() -> getData(data), workers)
+                    .whenComplete((response, ex) -> {
+                        long micros = metrics.finish(operation, start,
+                                ex != null || response.getOperation() == ERROR);
+                        if (response != null) {
+                            response.setServiceTime(micros);
+                        }
+                    });
+        } catch (RejectedExecutionException ex) {
+            metrics.finish(operation, start, true);
+            throw ex;
+        }
+    }
+
+    /**
+     * Method executes request by embedded log storage.
+     *
+     * @param data INSERT, UPDATE or DELETE request.
+     * @return response for the request.
+     */
+    private Data logData(Data data) {
+        TreeSet<Integer> stripes;
+        try {
+            stripes = lock(data);
+        } catch (SQLException ex) {
+            showMessage("logData(data): " + ex.getMessage());
+            return error(ex);
+        }
+        try {
+            LinkedHashMap<Integer, String> touched = new LinkedHashMap<>();
+            Data dbData = log.change(data, touched);
+            for (Map.Entry<Integer, String> e : touched.entrySet()) {
+                dbData = log.select(e.getValue());
+                index(dbData, e.getKey());
+                publish(e.getValue(), e.getKey());
+            }
+            return dbData;
+        } catch (IOException ex) {
+            showMessage("logData(data): " + ex.getMessage());
+            return error(ex);
+        } finally {
+            unlock(stripes);
+        }
+    }
+
+    /**
+     * Method executes INSERT, UPDATE or DELETE request by the journal. New
+     * data of the term is made from term index and is returned as soon as the
+     * change is written to the journal. Database is changed later by the
+     * applier of the journal.
+     *
+     * @param data request to database.
+     * @return current data of the term.
+     */
+    private Data journalData(Data data) {
+        Item key = data.getKey();
+        Item value = data.getValue(0);
+        String term = key.getItem();
+        TreeSet<Integer> stripes;
+        try {
+            /*term index is read after both names of renamed term are locked*/
+            stripes = lock(data);
+        } catch (SQLException ex) {
+            showMessage("journalData(data): " + ex.getMessage());
+            return error(ex);
+        }
+        try {
+            if (data.getOperation() != INSERT && key.getId() == ERROR) {
+                Data dbData = new Data();
+                dbData.setValue(0, new Item("**At first do a search**"));
+                return dbData;
+            }
+            Data current = data.getOperation() == INSERT ? termIndex.get(term)
+                    : termIndex.get(key.getId());
+            Item newKey = current.getKey();
+            int idTerm = newKey.getId();
+            ArrayList<Item> values = new ArrayList<>();
+            if (idTerm != ERROR) {
+                values.addAll(Arrays.asList(current.getValues()));
+            }
+            validate(data, values);
+            ArrayList<Journal.Record> records = new ArrayList<>(2);
             switch (data.getOperation()) {
-                case SELECT:
-                    break;
                 case INSERT:
-                    dbData = setData(term);
-                    /*if term is absent add new*/
-                    if (dbData.getKey().getId() == ERROR) {
-                        idTerm = getIdSQL(tblTerms);
-                        sql = insertSQL(tblTerms, idTerm, term);
-                        st.execute(sql);
-                    } else {
-                        idTerm = dbData.getKey().getId();
+                    try (DbConnection con = pool.borrow()) {
+                        if (idTerm == ERROR) {
+                            idTerm = termIds.next(con);
+                            newKey = new Item(idTerm, term, ORIGIN);
+                            records.add(new Journal.Record(Journal.INSERT_TERM,
+                                    idTerm, 0, term));
+                        }
+                        int idDef = definitionIds.next(con);
+                        records.add(new Journal.Record(Journal.INSERT_DEFINITION,
+                                idDef, idTerm, value.getItem()));
+                        values.add(new Item(idDef, value.getItem(), ORIGIN));
                     }
-                    /*add new definition*/
-                    fk = idTerm;
-                    idDef = getIdSQL(tblDef);
-                    sql = insertSQL(tblDef, idDef, definition, fk);
-                    st.execute(sql);
                     break;
                 case UPDATE:
-                    if (data.getKey().getId() == ERROR) {
-                        dbData = new Data();
-                        dbData.setValue(0, new Item("**At first do a search**"));
-                        break;
-                    }
-                    /*update term*/
-                    if (data.getKey().getState() == UPDATE) {
-                        idTerm = data.getKey().getId();
-                        sql = updateSQL(tblTerms, "Term", idTerm, term);
-                        st.execute(sql);
+                    idTerm = key.getId();
+                    if (key.getState() == UPDATE) {
+                        records.add(new Journal.Record(Journal.UPDATE_TERM,
+                                idTerm, 0, term));
+                        newKey = new Item(idTerm, term, ORIGIN);
                     }
-                    /*update definition*/
-                    if (data.getValue(0).getState() == UPDATE) {
-                        idDef = data.getValue(0).getId();
-                        sql = updateSQL(tblDef, "Definition", idDef, definition);
-                        st.execute(sql);
+                    if (value.getState() == UPDATE) {
+                        records.add(new Journal.Record(Journal.UPDATE_DEFINITION,
+                                value.getId(), 0, value.getItem()));
+                        for (int i = 0; i < values.size(); ++i) {
+                            if (values.get(i).getId() == value.getId()) {
+                                values.set(i, new Item(value.getId(),
+                                        value.getItem(), ORIGIN));
+                            }
+                        }
                     }
                     break;
-                case DELETE:                    
-                    if (data.getKey().getId() == ERROR) {
-                        dbData = new Data();
-                        dbData.setValue(0, new Item("**At first do a search**"));
-                        break;
+                case DELETE:
+                    idTerm = key.getId();
+                    if (value.getState() == DELETE) {
+                        records.add(new Journal.Record(Journal.DELETE_DEFINITION,
+                                value.getId(), 0, null));
+                        values.removeIf(v -> v.getId() == value.getId());
                     }
-                    /*delete definition*/
-                    if (data.getValue(0).getState() == DELETE) {
-                        idDef = data.getValue(0).getId();
-                        sql = deleteSQL(tblDef, idDef);
-                        st.execute(sql);
-                    }                    
-                    dbData = setData(term);
-                    /*if definirion is not found in TBLDEFINITIONS delete term*/
-                    if (data.getKey().getState() == DELETE
-                            && dbData.getKey().getId() == ERROR) {
-                        idTerm = data.getKey().getId();
-                        sql = deleteSQL(tblTerms, idTerm);
-                        st.execute(sql);
+                    if (key.getState() == DELETE && values.isEmpty()) {
+                        records.add(new Journal.Record(Journal.DELETE_TERM,
+                                idTerm, 0, null));
                     }
                     break;
             }
-            dbData = setData(term);
-        } catch (SQLException ex) {
-            showMessage("getData(data): " + ex.getMessage());
+            if (!records.isEmpty()) {
+                journal.append(records);
+            }
+            Data dbData = values.isEmpty() || newKey.getId() == ERROR
+                    ? notFound() : new Data(ORIGIN, newKey,
+                            values.toArray(new Item[values.size()]));
+            index(dbData, idTerm);
+            publish(term, idTerm);
+            return dbData;
+        } catch (SQLException | IOException ex) {
+            showMessage("journalData(data): " + ex.getMessage());
+            return error(ex);
+        } finally {
+            unlock(stripes);
+        }
+    }
+
+    /**
+     * Method checks a change of the journal against constraints of database
+     * tables before the change is written, so database can't reject its
+     * records later.
+     *
+     * @param data request to database.
+     * @param values current definitions of the term.
+     * @throws SQLException if the change breaks a constraint.
+     */
+    private static void validate(Data data, List<Item> values)
+            throws SQLException {
+        Item key = data.getKey();
+        Item value = data.getValue(0);
+        boolean newTerm = data.getOperation() == INSERT
+                || (data.getOperation() == UPDATE && key.getState() == UPDATE);
+        if (newTerm && (key.getItem() == null || key.getItem().isEmpty())) {
+            throw new SQLException("Term can't be empty");
+        }
+        if (newTerm && key.getItem().length() > MAX_TERM) {
+            throw new SQLException("Term is longer than " + MAX_TERM
+                    + " characters");
+        }
+        if (value == null) {
+            throw new SQLException("Definition can't be null");
+        }
+        boolean newDefinition = data.getOperation() == INSERT
+                || (data.getOperation() == UPDATE && value.getState() == UPDATE);
+        if (newDefinition && value.getItem() == null) {
+            throw new SQLException("Definition can't be null");
+        }
+        if (newDefinition && value.getItem().length() > MAX_DEFINITION) {
+            throw new SQLException("Definition is longer than "
+                    + MAX_DEFINITION + " characters");
+        }
+        if (data.getOperation() != INSERT && value.getState() != ORIGIN
+                && values.stream().noneMatch(v -> v.getId() == value.getId())) {
+            throw new SQLException("Definition " + value.getId()
+                    + " of the term isn't found");
+        }
+    }
+
+    /**
+     * Method applies records of the journal to database by one transaction.
+     * If the transaction fails the records are applied one by one to find
+     * the record rejected by database. The rejected record stops the journal,
+     * records after it stay in the journal file. Connection errors are
+     * thrown, so the records are applied again later.
+     *
+     * @param records records of the journal.
+     * @throws SQLException if database is unavailable.
+     * @throws SQLNonTransientException if database rejects a record.
+     */
+    private void applyJournal(List<Journal.Record> records) throws SQLException {
+        try (DbConnection con = pool.borrow()) {
+            Connection c = con.getConnection();
+            c.setAutoCommit(false);
+            try {
+                for (Journal.Record r : records) {
+                    apply(con, r);
+                }
+                c.commit();
+                return;
+            } catch (SQLException ex) {
+                c.rollback();
+                if (isConnectionError(ex)) {
+                    throw ex;
+                }
+                showMessage("applyJournal(records): " + ex.getMessage());
+            } finally {
+                c.setAutoCommit(true);
+            }
+            for (Journal.Record r : records) {
+                try {
+                    apply(con, r);
+                } catch (SQLException ex) {
+                    if (isConnectionError(ex)) {
+                        throw ex;
+                    }
+                    throw new SQLNonTransientException("Record " + r.getType()
+                            + ":" + r.getId() + " is rejected: "
+                            + ex.getMessage(), ex.getSQLState(), ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Method applies one record of the journal. Inserted records can be
+     * already in database after replay, so they replace existing rows.
+     */
+    private void apply(DbConnection con, Journal.Record r) throws SQLException {
+        switch (r.getType()) {
+            case Journal.INSERT_TERM:
+                try {
+                    insertSQL(con, r.getId(), r.getText()).executeUpdate();
+                } catch (SQLException ex) {
+                    if (!DUPLICATE_KEY.equals(ex.getSQLState())) {
+                        throw ex;
+                    }
+                    updateSQL(con, "TBLTERMS", r.getId(), r.getText())
+                            .executeUpdate();
+                }
+                break;
+            case Journal.INSERT_DEFINITION:
+                try {
+                    insertSQL(con, r.getId(), r.getText(), r.getTermId())
+                            .executeUpdate();
+                } catch (SQLException ex) {
+                    if (!DUPLICATE_KEY.equals(ex.getSQLState())) {
+                        throw ex;
+                    }
+                    PreparedStatement ps = con.prepare(REPLACE_DEFINITION_SQL);
+                    ps.setString(1, r.getText());
+                    ps.setInt(2, r.getTermId());
+                    ps.setInt(3, r.getId());
+                    ps.executeUpdate();
+                }
+                break;
+            case Journal.UPDATE_TERM:
+                updateSQL(con, "TBLTERMS", r.getId(), r.getText()).executeUpdate();
+                break;
+            case Journal.UPDATE_DEFINITION:
+                updateSQL(con, "TBLDEFINITIONS", r.getId(), r.getText())
+                        .executeUpdate();
+                break;
+            case Journal.DELETE_TERM:
+                deleteSQL(con, "TBLTERMS", r.getId()).executeUpdate();
+                break;
+            case Journal.DELETE_DEFINITION:
+                deleteSQL(con, "TBLDEFINITIONS", r.getId()).executeUpdate();
+                break;
+        }
+    }
+
+    private static boolean isConnectionError(SQLException ex) {
+        return ex.getSQLState() != null && ex.getSQLState().startsWith("08");
+    }
+
+    /**
+     * Method executes {@link JHelp#PREFIX} request. Terms are found by
+     * prefix index or by database if the index is switched off.
+     *
+     * @param data request with prefix as <code>key</code>.
+     * @return response with found terms as <code>values</code>.
+     */
+    private Data prefix(Data data) {
+        String prefix = data.getKey().getItem();
+        int limit = data.getLimit() > 0 ? Math.min(data.getLimit(), MAX_LIMIT)
+                : DEFAULT_LIMIT;
+        Item[] values;
+        if (prefix == null) {
+            values = new Item[0];
+        } else if (prefixIndex != null) {
+            values = prefixIndex.find(prefix, limit);
+        } else if (log != null) {
+            values = log.prefix(prefix, limit);
+        } else {
+            ArrayList<Item> list = new ArrayList<>();
+            try (DbConnection con = pool.borrow()) {
+                PreparedStatement ps = con.prepare(PREFIX_SQL);
+                ps.setString(1, prefix.replace("\\", "\\\\")
+                        .replace("%", "\\%").replace("_", "\\_") + "%");
+                ps.setMaxRows(limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        list.add(new Item(rs.getInt(1), rs.getString(2), ORIGIN));
+                    }
+                }
+            } catch (SQLException ex) {
+                showMessage("prefix(data): " + ex.getMessage());
+                return error(ex);
+            }
+            values = list.toArray(new Item[list.size()]);
+        }
+        return new Data(PREFIX, data.getKey(), values);
+    }
+
+    /**
+     * Method executes {@link JHelp#SEARCH} request. Terms are found by
+     * inverted index or by database if the index is switched off. The
+     * database search can find only terms which definitions contain whole
+     * request as substring.
+     *
+     * @param data request with words to search as <code>key</code>.
+     * @return response with found terms as <code>values</code>.
+     */
+    private Data search(Data data) {
+        String query = data.getKey().getItem();
+        int limit = data.getLimit() > 0 ? Math.min(data.getLimit(), MAX_LIMIT)
+                : DEFAULT_LIMIT;
+        Item[] values;
+        if (textIndex != null) {
+            values = textIndex.search(query, limit);
+        } else if (log != null) {
+            values = log.search(query, limit);
+        } else {
+            ArrayList<Item> list = new ArrayList<>();
+            try (DbConnection con = pool.borrow()) {
+                PreparedStatement ps = con.prepare(SEARCH_SQL);
+                ps.setString(1, "%" + query.toLowerCase().replace("\\", "\\\\")
+                        .replace("%", "\\%").replace("_", "\\_") + "%");
+                ps.setMaxRows(limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        list.add(new Item(rs.getInt(1), rs.getString(2), ORIGIN));
+                    }
+                }
+            } catch (SQLException ex) {
+                showMessage("search(data): " + ex.getMessage());
+                return error(ex);
+            }
+            values = list.toArray(new Item[list.size()]);
+        }
+        return new Data(SEARCH, data.getKey(), values);
+    }
+
+    /**
+     * Method adds terms close to unknown term into response.
+     *
+     * @param dbData response for SELECT request.
+     * @param term requested term.
+     * @return the response.
+     */
+    private Data suggest(Data dbData, String term) {
+        if (fuzzyIndex != null && term != null
+                && dbData.getKey().getId() == ERROR) {
+            int distance = term.length() > 4 ? fuzzyDistance : 1;
+            dbData.setSuggestions(fuzzyIndex.find(term, distance, DEFAULT_LIMIT));
         }
         return dbData;
     }
 
-    private Data setData(String term) throws SQLException {
+    private static Data error(Exception ex) {
+        return new Data(ERROR, new Item("Database error"),
+                new Item[]{new Item(ex.getMessage())});
+    }
+
+    /**
+     * Method executes INSERT, UPDATE or DELETE request. After the change the
+     * method updates all indexes and sends change notification to every
+     * attached {@link jhelp.Server} object.
+     *
+     * @param con connection of current request.
+     * @param data request to database.
+     * @return current data of the term.
+     * @throws SQLException if database error occurs.
+     */
+    private Data change(DbConnection con, Data data) throws SQLException {
+        String tblTerms = "TBLTERMS";
+        String tblDef = "TBLDEFINITIONS";
+        String term = data.getKey().getItem();
+        String definition = data.getValue(0).getItem();
+        System.out.println("definition " + definition);
+        int idTerm = ERROR;
+        int idDef = ERROR;
+        int fk = ERROR;
+        Data dbData = null;
+        switch (data.getOperation()) {
+            case INSERT:
+                dbData = setData(con, term);
+                /*if term is absent add new*/
+                if (dbData.getKey().getId() == ERROR) {
+                    idTerm = termIds.next(con);
+                    insertSQL(con, idTerm, term).executeUpdate();
+                } else {
+                    idTerm = dbData.getKey().getId();
+                }
+                /*add new definition*/
+                fk = idTerm;
+                idDef = definitionIds.next(con);
+                insertSQL(con, idDef, definition, fk).executeUpdate();
+                break;
+            case UPDATE:
+                if (data.getKey().getId() == ERROR) {
+                    dbData = new Data();
+                    dbData.setValue(0, new Item("**At first do a search**"));
+                    return dbData;
+                }
+                /*update term*/
+                idTerm = data.getKey().getId();
+                if (data.getKey().getState() == UPDATE) {
+                    updateSQL(con, tblTerms, idTerm, term).executeUpdate();
+                }
+                /*update definition*/
+                if (data.getValue(0).getState() == UPDATE) {
+                    idDef = data.getValue(0).getId();
+                    updateSQL(con, tblDef, idDef, definition).executeUpdate();
+                }
+                break;
+            case DELETE:                    
+                if (data.getKey().getId() == ERROR) {
+                    dbData = new Data();
+                    dbData.setValue(0, new Item("**At first do a search**"));
+                    return dbData;
+                }
+                /*delete definition*/
+                idTerm = data.getKey().getId();
+                if (data.getValue(0).getState() == DELETE) {
+                    idDef = data.getValue(0).getId();
+                    deleteSQL(con, tblDef, idDef).executeUpdate();
+                }                    
+                dbData = setData(con, term);
+                /*if definirion is not found in TBLDEFINITIONS delete term*/
+                if (data.getKey().getState() == DELETE
+                        && dbData.getKey().getId() == ERROR) {
+                    deleteSQL(con, tblTerms, idTerm).executeUpdate();
+                }
+                break;
+        }
+        dbData = setData(con, term);
+        if (idTerm != ERROR) {
+            index(dbData, idTerm);
+            publish(term, idTerm);
+        }
+        return dbData;
+    }
+
+    /**
+     * Method executes {@link JHelp#BATCH} request. All operations are
+     * executed in one transaction: either all of them are committed or the
+     * response is {@link JHelp#ERROR}. Operations of the same type which
+     * follow one by one are sent to database by JDBC batches. Changes of
+     * every touched term are locked for the whole batch.<br>
+     * Result of every operation is current data of its term after the
+     * batch, the term is found by identificator, so operations before
+     * renaming of the term get its new name. Indexes are updated and change
+     * notifications are sent after commit, once per touched term.
+     *
+     * @param data request with operations in <code>batch</code> attribute.
+     * @return response with results in <code>batch</code> attribute.
+     */
+    private Data batch(Data data) {
+        Data[] ops = data.getBatch() == null ? new Data[0] : data.getBatch();
+        for (Data op : ops) {
+            int operation = op.getOperation();
+            if ((operation != INSERT && operation != UPDATE
+                    && operation != DELETE) || op.getKey() == null
+                    || op.getKey().getItem() == null
+                    || op.getValues() == null || op.getValues().length == 0
+                    || op.getValue(0) == null) {
+                return new Data(ERROR, new Item("Invalid batch"), new Item[]{
+                    new Item("Batch can contain INSERT, UPDATE and DELETE "
+                            + "operations with key and value only")});
+            }
+        }
+        TreeSet<Integer> stripes;
+        try {
+            stripes = lock(ops);
+        } catch (SQLException ex) {
+            showMessage("batch(data): " + ex.getMessage());
+            return error(ex);
+        }
+        if (log != null) {
+            try {
+                return logBatch(ops);
+            } finally {
+                unlock(stripes);
+            }
+        }
+        try (DbConnection con = pool.borrow()) {
+            if (journal != null) {
+                /*the batch must see all journaled changes*/
+                journal.drain();
+            }
+            Data[] results = new Data[ops.length];
+            int[] ids = new int[ops.length];
+            Arrays.fill(ids, ERROR);
+            /*identificator of touched term -> its last name*/
+            LinkedHashMap<Integer, String> touched = new LinkedHashMap<>();
+            StatementBatch statements = new StatementBatch();
+            Connection c = con.getConnection();
+            c.setAutoCommit(false);
+            try {
+                int from = 0;
+                while (from < ops.length) {
+                    int to = from;
+                    while (to < ops.length && ops[to].getOperation()
+                            == ops[from].getOperation()) {
+                        ++to;
+                    }
+                    switch (ops[from].getOperation()) {
+                        case INSERT:
+                            insertAll(con, statements, ops, from, to, ids,
+                                    touched);
+                            break;
+                        case UPDATE:
+                            updateAll(con, statements, ops, from, to, results,
+                                    ids, touched);
+                            break;
+                        case DELETE:
+                            deleteAll(con, statements, ops, from, to, results,
+                                    ids, touched);
+                            break;
+                    }
+                    from = to;
+                }
+                statements.flush();
+                c.commit();
+            } catch (SQLException ex) {
+                statements.clear();
+                c.rollback();
+                throw ex;
+            } finally {
+                c.setAutoCommit(true);
+            }
+            HashMap<Integer, Data> current = new HashMap<>();
+            for (Map.Entry<Integer, String> e : touched.entrySet()) {
+                Data dbData = setData(con, e.getValue());
+                current.put(e.getKey(), dbData);
+                index(dbData, e.getKey());
+                publish(e.getValue(), e.getKey());
+            }
+            System.out.println("SERVERDb: batch of " + ops.length
+                    + " operations, " + statements);
+            return batchResponse(results, ids, current);
+        } catch (SQLException ex) {
+            /*cause of failed JDBC batch is the next exception*/
+            SQLException cause = ex.getNextException() == null ? ex
+                    : ex.getNextException();
+            showMessage("batch(data): " + cause.getMessage());
+            return error(cause);
+        } catch (IOException ex) {
+            showMessage("batch(data): " + ex.getMessage());
+            return error(ex);
+        } finally {
+            unlock(stripes);
+        }
+    }
+
+    /**
+     * Method executes operations of {@link JHelp#BATCH} request by embedded
+     * log storage. Locks of touched terms are taken by caller.
+     *
+     * @param ops operations of batch.
+     * @return response with results in <code>batch</code> attribute.
+     */
+    private Data logBatch(Data[] ops) {
+        Data[] results = new Data[ops.length];
+        int[] ids = new int[ops.length];
+        LinkedHashMap<Integer, String> touched = new LinkedHashMap<>();
+        try {
+            log.batch(ops, results, ids, touched);
+        } catch (IOException ex) {
+            showMessage("logBatch(ops): " + ex.getMessage());
+            return error(ex);
+        }
+        HashMap<Integer, Data> current = new HashMap<>();
+        for (Map.Entry<Integer, String> e : touched.entrySet()) {
+            Data dbData = log.select(e.getValue());
+            current.put(e.getKey(), dbData);
+            index(dbData, e.getKey());
+            publish(e.getValue(), e.getKey());
+        }
+        System.out.println("SERVERDb: batch of " + ops.length
+                + " operations, " + log);
+        return batchResponse(results, ids, current);
+    }
+
+    /**
+     * Method makes response for {@link JHelp#BATCH} request. Operations
+     * without own result get current data of their terms.
+     *
+     * @param results own results of operations or <code>null</code>.
+     * @param ids identificators of terms of operations.
+     * @param current current data of touched terms by their identificators.
+     */
+    private Data batchResponse(Data[] results, int[] ids,
+            HashMap<Integer, Data> current) {
+        for (int i = 0; i < results.length; ++i) {
+            if (results[i] == null) {
+                results[i] = current.get(ids[i]);
+            }
+            if (results[i] == null) {
+                results[i] = notFound();
+            }
+        }
+        Data response = new Data(BATCH, new Item(results.length, "Batch",
+                ORIGIN), new Item[0]);
+        response.setBatch(results);
+        return response;
+    }
+
+    /**
+     * Method adds INSERT operations <code>ops[from..to)</code> of batch to
+     * the statements. New terms are inserted before all definitions, so both
+     * tables get single JDBC batch.
+     */
+    private void insertAll(DbConnection con, StatementBatch statements,
+            Data[] ops, int from, int to, int[] opIds,
+            Map<Integer, String> touched) throws SQLException {
+        LinkedHashSet<String> terms = new LinkedHashSet<>();
+        for (int i = from; i < to; ++i) {
+            terms.add(ops[i].getKey().getItem());
+        }
+        /*lookup must see previous operations of the batch*/
+        statements.flush();
+        HashMap<String, Integer> ids = lookup(con, terms);
+        for (String term : terms) {
+            Integer idTerm = ids.get(term);
+            if (idTerm == null) {
+                idTerm = termIds.next(con);
+                ids.put(term, idTerm);
+                statements.add(insertSQL(con, idTerm, term));
+            }
+            touched.put(idTerm, term);
+        }
+        for (int i = from; i < to; ++i) {
+            int fk = ids.get(ops[i].getKey().getItem());
+            opIds[i] = fk;
+            statements.add(insertSQL(con, definitionIds.next(con),
+                    ops[i].getValue(0).getItem(), fk));
+        }
+    }
+
+    /**
+     * Method adds UPDATE operations <code>ops[from..to)</code> of batch to
+     * the statements. Terms are updated before definitions.
+     */
+    private void updateAll(DbConnection con, StatementBatch statements,
+            Data[] ops, int from, int to, Data[] results, int[] ids,
+            Map<Integer, String> touched) throws SQLException {
+        for (int i = from; i < to; ++i) {
+            Item key = ops[i].getKey();
+            if (key.getId() == ERROR) {
+                results[i] = new Data();
+                results[i].setValue(0, new Item("**At first do a search**"));
+                continue;
+            }
+            if (key.getState() == UPDATE) {
+                statements.add(updateSQL(con, "TBLTERMS", key.getId(),
+                        key.getItem()));
+            }
+            ids[i] = key.getId();
+            touched.put(key.getId(), key.getItem());
+        }
+        for (int i = from; i < to; ++i) {
+            Item value = ops[i].getValue(0);
+            if (results[i] == null && value.getState() == UPDATE) {
+                statements.add(updateSQL(con, "TBLDEFINITIONS", value.getId(),
+                        value.getItem()));
+            }
+        }
+    }
+
+    /**
+     * Method adds DELETE operations <code>ops[from..to)</code> of batch to
+     * the statements. Definitions are deleted first, then terms without
+     * definitions are deleted if it's requested.
+     */
+    private void deleteAll(DbConnection con, StatementBatch statements,
+            Data[] ops, int from, int to, Data[] results, int[] ids,
+            Map<Integer, String> touched) throws SQLException {
+        for (int i = from; i < to; ++i) {
+            Item key = ops[i].getKey();
+            if (key.getId() == ERROR) {
+                results[i] = new Data();
+                results[i].setValue(0, new Item("**At first do a search**"));
+                continue;
+            }
+            if (ops[i].getValue(0).getState() == DELETE) {
+                statements.add(deleteSQL(con, "TBLDEFINITIONS",
+                        ops[i].getValue(0).getId()));
+            }
+            ids[i] = key.getId();
+            touched.put(key.getId(), key.getItem());
+        }
+        statements.flush();
+        HashSet<Integer> deleted = new HashSet<>();
+        for (int i = from; i < to; ++i) {
+            Item key = ops[i].getKey();
+            if (results[i] == null && key.getState() == DELETE
+                    && !deleted.contains(key.getId())
+                    && countDefinitions(con, key.getId()) == 0) {
+                statements.add(deleteSQL(con, "TBLTERMS", key.getId()));
+                deleted.add(key.getId());
+            }
+        }
+    }
+
+    private int stripe(String term) {
+        return (term.hashCode() & 0x7fffffff) % termLocks.length;
+    }
+
+    /**
+     * Method locks the terms changed by the operations. Renamed term is
+     * locked by both names, so a concurrent change of the old name waits for
+     * the rename. Locks are taken in ascending order of stripes by all
+     * requests, so the requests can't deadlock.
+     *
+     * @param ops INSERT, UPDATE or DELETE operations.
+     * @return locked stripes, they must be released by {@link #unlock}.
+     * @throws SQLException if old name of renamed term can't be read.
+     */
+    private TreeSet<Integer> lock(Data... ops) throws SQLException {
+        while (true) {
+            TreeSet<Integer> stripes = new TreeSet<>();
+            HashMap<Integer, String> names = new HashMap<>();
+            for (Data op : ops) {
+                stripes.add(stripe(op.getKey().getItem()));
+                if (isRename(op)) {
+                    String old = termName(op.getKey().getId());
+                    names.put(op.getKey().getId(), old);
+                    if (old != null) {
+                        stripes.add(stripe(old));
+                    }
+                }
+            }
+            for (int stripe : stripes) {
+                termLocks[stripe].lock();
+            }
+            /*the term could be renamed again before the locks were taken*/
+            boolean same = true;
+            try {
+                for (Map.Entry<Integer, String> e : names.entrySet()) {
+                    same &= Objects.equals(e.getValue(), termName(e.getKey()));
+                }
+            } catch (SQLException ex) {
+                unlock(stripes);
+                throw ex;
+            }
+            if (same) {
+                return stripes;
+            }
+            unlock(stripes);
+        }
+    }
+
+    private void unlock(TreeSet<Integer> stripes) {
+        for (int stripe : stripes.descendingSet()) {
+            termLocks[stripe].unlock();
+        }
+    }
+
+    private static boolean isRename(Data op) {
+        return op.getOperation() == UPDATE && op.getKey().getState() == UPDATE
+                && op.getKey().getId() != ERROR;
+    }
+
+    /**
+     * Method returns current name of the term.
+     *
+     * @param idTerm identificator of the term.
+     * @return name of the term or <code>null</code> if the term is unknown.
+     * @throws SQLException if database error occurs.
+     */
+    private String termName(int idTerm) throws SQLException {
+        if (termIndex != null) {
+            Item key = termIndex.get(idTerm).getKey();
+            if (key.getId() == idTerm) {
+                return key.getItem();
+            }
+        }
+        if (log != null) {
+            return log.term(idTerm);
+        }
+        try (DbConnection con = pool.borrow()) {
+            PreparedStatement ps = con.prepare(TERM_NAME_SQL);
+            ps.setInt(1, idTerm);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Method finds identificators of terms by their names.
+     *
+     * @param con connection of current request.
+     * @param terms names of terms.
+     * @return map name -&gt; identificator for existing terms.
+     * @throws SQLException if database error occurs.
+     */
+    private HashMap<String, Integer> lookup(DbConnection con,
+            LinkedHashSet<String> terms) throws SQLException {
+        HashMap<String, Integer> ids = new HashMap<>();
+        PreparedStatement ps = con.prepare(LOOKUP_SQL);
+        Iterator<String> it = terms.iterator();
+        while (it.hasNext()) {
+            String term = null;
+            for (int i = 1; i <= LOOKUP_SIZE; ++i) {
+                /*the last term fills unused parameters*/
+                if (it.hasNext()) {
+                    term = it.next();
+                }
+                ps.setString(i, term);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.putIfAbsent(rs.getString(2), rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private int countDefinitions(DbConnection con, int idTerm)
+            throws SQLException {
+        PreparedStatement ps = con.prepare(COUNT_DEFINITIONS_SQL);
+        ps.setInt(1, idTerm);
+        try (ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * Method passes current data of changed term to all indexes.
+     *
+     * @param dbData current data of the term. Identificator of the key is
+     * {@link JHelp#ERROR} if the term was deleted.
+     * @param idTerm identificator of changed term.
+     */
+    private void index(Data dbData, int idTerm) {
+        for (DictionaryIndex index : indexes) {
+            if (dbData.getKey().getId() == ERROR) {
+                index.remove(idTerm);
+            } else {
+                index.put(dbData);
+            }
+        }
+    }
+
+    /**
+     * Method loads whole dictionary from database into all indexes.
+     *
+     * @param con connection to database.
+     * @throws SQLException if database error occurs.
+     */
+    private void loadIndexes(DbConnection con) throws SQLException {
+        System.out.println("SERVERDb: loading indexes");
+        int count = 0;
+        Item key = null;
+        ArrayList<Item> list = new ArrayList<>();
+        try (ResultSet rs = con.prepare(SELECT_ALL_SQL).executeQuery()) {
+            while (rs.next()) {
+                if (key != null && key.getId() != rs.getInt(1)) {
+                    load(key, list);
+                    ++count;
+                }
+                if (key == null || key.getId() != rs.getInt(1)) {
+                    key = new Item(rs.getInt(1), rs.getString(2), ORIGIN);
+                }
+                list.add(new Item(rs.getInt(3), rs.getString(4), ORIGIN));
+            }
+        }
+        if (key != null) {
+            load(key, list);
+            ++count;
+        }
+        System.out.println("SERVERDb: " + count + " terms are loaded");
+    }
+
+    /**
+     * Method loads whole dictionary from log storage into all indexes.
+     *
+     * @param log embedded log storage.
+     */
+    private void loadIndexes(LogStorage log) {
+        System.out.println("SERVERDb: loading indexes");
+        int[] count = {0};
+        log.forEach(data -> {
+            for (DictionaryIndex index : indexes) {
+                index.put(data);
+            }
+            ++count[0];
+        });
+        System.out.println("SERVERDb: " + count[0] + " terms are loaded");
+    }
+
+    private void load(Item key, ArrayList<Item> list) {
+        Item[] values = new Item[list.size()];
+        list.toArray(values);
+        list.clear();
+        Data data = new Data(ORIGIN, key, values);
+        for (DictionaryIndex index : indexes) {
+            index.put(data);
+        }
+    }
+
+    /**
+     * Method sends change notification for the term to every attached
+     * {@link jhelp.Server} object.
+     *
+     * @param term changed term.
+     * @param idTerm identificator of changed term.
+     */
+    private void publish(String term, int idTerm) {
+        Data notification = new Data(NOTIFY, new Item(idTerm, term, ORIGIN),
+                new Item[0]);
+        long v = version.incrementAndGet();
+        termVersions.put(idTerm, v);
+        notification.setVersion(v);
+        for (ServerDbThread connection : connections) {
+            connection.send(notification);
+        }
+    }
+
+    private Data setData(DbConnection con, String term) throws SQLException {
         Item key = null;
         Item[] values;
         Data data;
         ArrayList<Item> list = new ArrayList();
-        String sql;
-
-        sql = selectSQL(term);
-        rs = st.executeQuery(sql);
 
-        boolean flag = true;
-        while (rs.next()) {
-            if (flag) {
-                key = new Item(rs.getInt(1), rs.getString(2), ORIGIN);
-                flag = false;
+        try (ResultSet rs = selectSQL(con, term).executeQuery()) {
+            boolean flag = true;
+            while (rs.next()) {
+                if (flag) {
+                    key = new Item(rs.getInt(1), rs.getString(2), ORIGIN);
+                    flag = false;
+                }
+                list.add(new Item(rs.getInt(3), rs.getString(4), ORIGIN));
             }
-            list.add(new Item(rs.getInt(3), rs.getString(4), ORIGIN));
         }
 
         values = new Item[list.size()];
         list.toArray(values);
-        if (key == null) {
-            key = new Item("Unknown term");
-        }
-        if (values.length == 0) {
-            values = new Item[1];
-            values[0] = new Item("Defintions not found");
+        if (key == null || values.length == 0) {
+            return notFound();
         }
         data = new Data(ORIGIN, key, values);
         return data;
     }
 
+    /**
+     * Method reads one page of definitions of the term from database.
+     *
+     * @param con connection of current request.
+     * @param term requested term.
+     * @param cursor identificator of last definition of previous page or 0
+     * (zero) for first page.
+     * @param limit maximal number of definitions in the page.
+     * @return the term with the page of definitions or
+     * {@link #notFound()} if the term is unknown.
+     * @throws SQLException if database error occurs.
+     */
+    private Data setPage(DbConnection con, String term, int cursor, int limit)
+            throws SQLException {
+        PreparedStatement ps = con.prepare(COUNT_TERM_SQL);
+        ps.setString(1, term);
+        int idTerm;
+        int total;
+        try (ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) {
+                return notFound();
+            }
+            idTerm = rs.getInt(1);
+            total = rs.getInt(2);
+        }
+        ps = con.prepare(PAGE_SQL);
+        ps.setInt(1, idTerm);
+        ps.setInt(2, cursor);
+        ps.setInt(3, limit + 1);
+        ArrayList<Item> list = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                list.add(new Item(rs.getInt(1), rs.getString(2), ORIGIN));
+            }
+        }
+        Data data = new Data(ORIGIN, new Item(idTerm, term, ORIGIN),
+                list.subList(0, Math.min(limit, list.size())).toArray(new Item[0]));
+        data.setTotal(total);
+        if (list.size() > limit) {
+            data.setCursor(list.get(limit - 1).getId());
+        }
+        return data;
+    }
+
+    /**
+     * Method cuts page of definitions from whole data of the term.
+     * Definitions are ordered by identificators, so a page begins after
+     * definition with identificator <code>cursor</code> and contains at most
+     * <code>limit</code> definitions. <code>cursor</code> of the page is
+     * identificator of its last definition if more definitions follow,
+     * otherwise it is 0 (zero).
+     *
+     * @param data whole data of the term.
+     * @param cursor identificator of last definition of previous page or 0
+     * (zero) for first page.
+     * @param limit maximal number of definitions or 0 (zero) for all
+     * definitions after <code>cursor</code>.
+     * @return the page. It is <code>data</code> itself if no definition is
+     * cut off, otherwise new {@link Data} object.
+     */
+    static Data page(Data data, int cursor, int limit) {
+        Item[] values = data.getValues();
+        if (data.getKey().getId() == ERROR || values == null) {
+            return data;
+        }
+        data.setTotal(values.length);
+        if (cursor == 0 && (limit <= 0 || limit >= values.length)) {
+            return data;
+        }
+        values = values.clone();
+        Arrays.sort(values, (a, b) -> Integer.compare(a.getId(), b.getId()));
+        int from = 0;
+        while (from < values.length && values[from].getId() <= cursor) {
+            ++from;
+        }
+        int to = limit > 0 ? Math.min(values.length, from + limit) : values.length;
+        Data page = new Data(data.getOperation(), data.getKey(),
+                Arrays.copyOfRange(values, from, to));
+        page.setRequestId(data.getRequestId());
+        page.setVersion(data.getVersion());
+        page.setTotal(values.length);
+        if (to < values.length) {
+            page.setCursor(values[to - 1].getId());
+        }
+        return page;
+    }
+
+    /**
+     * Method returns response for SELECT request with valid version.
+     *
+     * @param request SELECT request with <code>version</code> of cached
+     * term.
+     * @return new {@link Data} object with the term and the version.
+     */
+    static Data notModified(Data request) {
+        Data data = new Data(NOT_MODIFIED, new Item(request.getKey().getId(),
+                request.getKey().getItem(), ORIGIN), new Item[0]);
+        data.setVersion(request.getVersion());
+        return data;
+    }
+
+    /**
+     * Method returns response for unknown term.
+     *
+     * @return new {@link Data} object.
+     */
+    static Data notFound() {
+        return new Data(ORIGIN, new Item("Unknown term"),
+                new Item[]{new Item("Defintions not found")});
+    }
+
     /**
      * Method disconnects <code>ServerDb</code> object from a database and
      * closes {@link java.net.ServerSocket} object.
@@ -358,64 +1770,74 @@ public class ServerDb implements JHelp {
      */
     public int disconnect() {
         System.out.println("SERVERDb: disconnect");
+        for (ServerDbThread connection : connections) {
+            connection.disconnect();
+        }
+        workers.shutdown();
         try {
-            if (!clientSocket.isClosed()) {
-                Data disconnect = new Data();
-                disconnect.setOperation(DISCONNECT);
-                output.writeObject(disconnect);
-                clientSocket.close();
-            }
             serverSocket.close();
-            con.close();
         } catch (IOException ex) {
             showMessage("disconnect(): " + ex.getMessage());
-        } catch (SQLException ex) {
-            showMessage("disconnect(): " + ex.getMessage());
 //        }catch(NullPointerException ex){
 //            showMessage(ex);
         }
+        System.out.println("SERVERDb: " + Compressor.statistics());
+        metrics.close();
+        if (log != null) {
+            System.out.println("SERVERDb: " + log);
+            log.close();
+        } else {
+            if (journal != null) {
+                journal.close(5000);
+                System.out.println("SERVERDb: " + journal);
+            }
+            System.out.println("SERVERDb: " + pool);
+            pool.close();
+        }
 
         return JHelp.DISCONNECT;
     }
 
 //    private Data selectFromDb();
-    private int getIdSQL(String TblName) throws SQLException {
-        String sql = "SELECT MAX(id) FROM " + TblName;
-        ResultSet rs = st.executeQuery(sql);
-        int id = 0;
-        if (rs.next()) {
-            id = rs.getInt(1);
-        }
-        return id + 1;
-    }
-
-    private String selectSQL(String val) {
-        String sql = "SELECT TBLTERMS.id, term,TBLDEFINITIONS.ID,DEFINITION "
-                + "FROM TBLTERMS JOIN TBLDEFINITIONS ON  "
-                + "TBLTERMS.ID=TBLDEFINITIONS.TERM_ID and term = '"
-                + val + "'";
-        return sql;
+    private PreparedStatement selectSQL(DbConnection con, String val)
+            throws SQLException {
+        PreparedStatement ps = con.prepare(SELECT_SQL);
+        ps.setString(1, val);
+        return ps;
     }
 
-    private String insertSQL(String TblName, int id, String val) {
-        String sql = "INSERT INTO " + TblName + " values (" + id + ",'" + val + "')";
-        return sql;
+    private PreparedStatement insertSQL(DbConnection con, int id, String val)
+            throws SQLException {
+        PreparedStatement ps = con.prepare(INSERT_TERM_SQL);
+        ps.setInt(1, id);
+        ps.setString(2, val);
+        return ps;
     }
 
-    private String insertSQL(String TblName, int id, String val, int fk) {
-        String sql = "INSERT INTO " + TblName + " values (" + id + ",'" + val + "'," + fk + ")";
-        return sql;
+    private PreparedStatement insertSQL(DbConnection con, int id, String val,
+            int fk) throws SQLException {
+        PreparedStatement ps = con.prepare(INSERT_DEFINITION_SQL);
+        ps.setInt(1, id);
+        ps.setString(2, val);
+        ps.setInt(3, fk);
+        return ps;
     }
 
-    private String updateSQL(String TblName, String field, int id, String val) {
-        String sql = "UPDATE " + TblName + " SET " + field + " = '"
-                + val + "' WHERE ID = " + id;
-        return sql;
+    private PreparedStatement updateSQL(DbConnection con, String TblName,
+            int id, String val) throws SQLException {
+        PreparedStatement ps = con.prepare("TBLTERMS".equals(TblName)
+                ? UPDATE_TERM_SQL : UPDATE_DEFINITION_SQL);
+        ps.setString(1, val);
+        ps.setInt(2, id);
+        return ps;
     }
 
-    private String deleteSQL(String tblName, int id) {
-        String sql = "DELETE FROM " + tblName + " WHERE ID = " + id;
-        return sql;
+    private PreparedStatement deleteSQL(DbConnection con, String tblName,
+            int id) throws SQLException {
+        PreparedStatement ps = con.prepare("DELETE FROM " + tblName
+                + " WHERE ID = ?");
+        ps.setInt(1, id);
+        return ps;
     }
 
     private void showMessage(String msg) {
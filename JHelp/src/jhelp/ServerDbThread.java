@@ -0,0 +1,163 @@
+/*
+ * Class ServerDbThread.
+ */
+package jhelp;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * This class provides a network connection between {@link jhelp.Server}
+ * object and {@link jhelp.ServerDb} object. Every object of this class works
+ * in separate thread and reads requests of one {@link jhelp.Server} object.
+ * Requests are passed to {@link ServerDb#getDataAsync(Data)} method and are
+ * processed by worker pool of {@link jhelp.ServerDb} object, so responses can
+ * be sent in any order.
+ *
+ * @version 1.0
+ * @see jhelp.Server
+ * @see jhelp.ServerDb
+ */
+public class ServerDbThread implements JHelp, Runnable {
+
+    private ServerDb serverDb;
+    private Socket socket;
+    private DataLink link;
+
+    /**
+     * Creates a new instance of <code>ServerDbThread</code>.
+     *
+     * @param serverDb reference to {@link ServerDb} object.
+     * @param socket reference to {@link java.net.Socket} object for connection
+     * with {@link Server} object.
+     */
+    public ServerDbThread(ServerDb serverDb, Socket socket) {
+        System.out.println("SERVERDbThread: constructor");
+        this.serverDb = serverDb;
+        this.socket = socket;
+    }
+
+    /**
+     * The method defines main job cycle for the object.
+     */
+    public void run() {
+        System.out.println("SERVERDbThread: run");
+        if (connect() == OK) {
+            try {
+                while (true) {
+                    Data data = link.read();
+                    if (data.getOperation() == DISCONNECT) {
+                        break;
+                    }
+                    long requestId = data.getRequestId();
+                    serverDb.getDataAsync(data).whenComplete((response, ex) -> {
+                        if (ex != null) {
+                            showMessage("run(): " + ex.getMessage());
+                            response = new Data(ERROR, new Item("Database error"),
+                                    new Item[]{new Item(ex.getMessage())});
+                        }
+                        response.setRequestId(requestId);
+                        send(response);
+                    });
+                }
+            } catch (IOException | RejectedExecutionException ex) {
+                showMessage("run(): " + ex.getMessage());
+            }
+            disconnect();
+        }
+        serverDb.remove(this);
+    }
+
+    /**
+     * Opens input and output streams for data interchanging with
+     * {@link Server} object. Protocol of {@link Server} object is recognized
+     * by {@link DataLink#accept(Socket)} method.
+     *
+     * @return error code. The method returns {@link JHelp#OK} if streams are
+     * successfully opened, otherwise the method returns {@link JHelp#ERROR}.
+     */
+    public int connect() {
+        System.out.println("SERVERDbThread: connect");
+        int flag = OK;
+        try {
+            link = DataLink.accept(socket);
+        } catch (IOException ex) {
+            flag = ERROR;
+            showMessage("connect(): " + ex.getMessage());
+        }
+        return flag;
+    }
+
+    /**
+     * The method uses default parameters, see {@link #connect()}.
+     *
+     * @param args is not used.
+     * @return error code of {@link #connect()} method.
+     */
+    public int connect(String[] args) {
+        return connect();
+    }
+
+    /**
+     * Processes single request by {@link ServerDb} object. The response has
+     * the same <code>requestId</code> as the request.
+     *
+     * @param data request to database.
+     * @return response of database.
+     */
+    public Data getData(Data data) {
+        long requestId = data.getRequestId();
+        Data response = serverDb.getData(data);
+        response.setRequestId(requestId);
+        return response;
+    }
+
+    /**
+     * Sends response to {@link Server} object. Responses of different workers
+     * are written one by one.
+     *
+     * @param data response of database.
+     */
+    void send(Data data) {
+        try {
+            link.write(data);
+        } catch (IOException ex) {
+            showMessage("send(data): " + ex.getMessage());
+            disconnect();
+        }
+    }
+
+    /**
+     * The method sends {@link JHelp#DISCONNECT} message to {@link Server}
+     * object if the connection is still open and closes the connection.
+     *
+     * @return {@link JHelp#DISCONNECT} value.
+     */
+    public int disconnect() {
+        System.out.println("SERVERDbThread: disconnect");
+        try {
+            if (!socket.isClosed() && link != null) {
+                Data disconnect = new Data();
+                disconnect.setOperation(DISCONNECT);
+                link.write(disconnect);
+            }
+        } catch (IOException ex) {
+            showMessage("disconnect(): " + ex.getMessage());
+        }
+        try {
+            if (link != null) {
+                link.close();
+            } else {
+                socket.close();
+            }
+        } catch (IOException ex) {
+            showMessage("disconnect(): " + ex.getMessage());
+        }
+        return DISCONNECT;
+    }
+
+    private void showMessage(String msg) {
+        System.out.println("SERVERDbThreadError: " + msg);
+    }
+}
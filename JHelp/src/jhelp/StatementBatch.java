@@ -0,0 +1,74 @@
+/*
+ * Class StatementBatch.
+ */
+package jhelp;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * This class collects JDBC statements of {@link JHelp#BATCH} request. Calls
+ * of the same {@link java.sql.PreparedStatement} object which follow one by
+ * one are sent to database by single <code>executeBatch()</code> call. The
+ * batch is executed when other statement is added or by {@link #flush()}
+ * method, so the statements are executed in order of addition.
+ *
+ * @version 1.0
+ * @see jhelp.ServerDb
+ */
+public class StatementBatch {
+
+    private PreparedStatement current;
+    private int statements;
+    private int batches;
+
+    /**
+     * Method adds current parameters of the statement to the batch.
+     *
+     * @param ps statement with set parameters.
+     * @throws SQLException if previous statement fails.
+     */
+    public void add(PreparedStatement ps) throws SQLException {
+        if (ps != current) {
+            flush();
+            current = ps;
+        }
+        ps.addBatch();
+        ++statements;
+    }
+
+    /**
+     * Method executes collected statements.
+     *
+     * @throws SQLException if any statement fails.
+     */
+    public void flush() throws SQLException {
+        if (current != null) {
+            PreparedStatement ps = current;
+            current = null;
+            ps.executeBatch();
+            ++batches;
+        }
+    }
+
+    /**
+     * Method discards collected statements after error.
+     */
+    public void clear() {
+        if (current != null) {
+            try {
+                current.clearBatch();
+            } catch (SQLException ex) {
+                System.out.println("StatementBatchError: clear(): "
+                        + ex.getMessage());
+            }
+            current = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StatementBatch[statements=" + statements + ", batches="
+                + batches + "]";
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Class TermCache.
+ */
+package jhelp;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class presents read-through cache of {@link jhelp.Data} objects
+ * returned by {@link jhelp.ServerDb} object for SELECT requests. The cache is
+ * used by {@link jhelp.Server} and {@link jhelp.ClientListener} objects. Key
+ * of the cache is normalized term.
+ * The cache holds at most <code>maxSize</code> terms, the least recently used
+ * term is evicted first. Every term is evicted also after <code>ttl</code>
+ * milliseconds. The term is invalidated when {@link jhelp.Server} object
+ * passes INSERT, UPDATE or DELETE request for it.<br>
+ * Every invalidation changes <code>stamp</code> of the cache. A response is
+ * put into the cache only if the stamp wasn't changed while the request was
+ * processed, so the cache never keeps result of a request which was
+ * concurrent with any change.
+ *
+ * @version 1.0
+ * @see jhelp.Server
+ */
+public class TermCache {
+
+    private final int maxSize;
+    private final long ttl;
+    private final LinkedHashMap<String, Cached> entries;
+    private long stamp;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Cached value with its expiration time.
+     */
+    private static class Cached {
+
+        private final Data data;
+        private final long expires;
+
+        Cached(Data data, long expires) {
+            this.data = data;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * Creates a new instance of <code>TermCache</code>.
+     *
+     * @param maxSize maximal number of cached terms.
+     * @param ttl time to live of cached term in milliseconds.
+     */
+    public TermCache(int maxSize, long ttl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        entries = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                if (size() > TermCache.this.maxSize) {
+                    ++evictions;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Method returns normalized term, which is used as key of the cache.
+     *
+     * @param term term of request.
+     * @return term without leading and trailing spaces.
+     */
+    public static String normalize(String term) {
+        return term == null ? "" : term.trim();
+    }
+
+    /**
+     * Method returns cached value of the term.
+     *
+     * @param term normalized term.
+     * @return copy of cached {@link Data} object or <code>null</code> if the
+     * term isn't cached or is expired.
+     */
+    public synchronized Data get(String term) {
+        Cached entry = entries.get(term);
+        if (entry != null && entry.expires < System.currentTimeMillis()) {
+            entries.remove(term);
+            ++evictions;
+            entry = null;
+        }
+        if (entry == null) {
+            ++misses;
+            return null;
+        }
+        ++hits;
+        Data data = entry.data;
+        Data copy = new Data(data.getOperation(), data.getKey(), data.getValues());
+        copy.setVersion(data.getVersion());
+        copy.setCursor(data.getCursor());
+        copy.setTotal(data.getTotal());
+        return copy;
+    }
+
+    /**
+     * Method returns current stamp of the cache. The stamp must be taken
+     * before request to {@link ServerDb} object.
+     *
+     * @return current stamp.
+     */
+    public synchronized long stamp() {
+        return stamp;
+    }
+
+    /**
+     * Method puts response of {@link ServerDb} object into the cache if no
+     * term was invalidated since <code>stamp</code>.
+     *
+     * @param term normalized term.
+     * @param data response of {@link ServerDb} object.
+     * @param stamp stamp of the cache taken before the request.
+     */
+    public synchronized void put(String term, Data data, long stamp) {
+        if (stamp == this.stamp) {
+            entries.put(term, new Cached(data, System.currentTimeMillis() + ttl));
+        }
+    }
+
+    /**
+     * Method removes the term from the cache. Any term with the same
+     * identificator is removed too, because it can be old name of changed
+     * term.
+     *
+     * @param term normalized term.
+     * @param id identificator of the term or {@link JHelp#ERROR} if it is
+     * unknown.
+     */
+    public synchronized void invalidate(String term, int id) {
+        ++stamp;
+        ++invalidations;
+        entries.remove(term);
+        if (id != JHelp.ERROR) {
+            Iterator<Cached> it = entries.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().data.getKey().getId() == id) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Method returns number of cached terms.
+     *
+     * @return number of cached terms.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Method returns number of requests served from the cache.
+     *
+     * @return number of hits.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Method returns number of requests which weren't found in the cache.
+     *
+     * @return number of misses.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Method returns number of terms evicted by size or time limit.
+     *
+     * @return number of evictions.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Method returns number of invalidations.
+     *
+     * @return number of invalidations.
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TermCache[size=" + entries.size() + ", hits=" + hits
+                + ", misses=" + misses + ", evictions=" + evictions
+                + ", invalidations=" + invalidations + "]";
+    }
+}
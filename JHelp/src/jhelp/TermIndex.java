@@ -0,0 +1,76 @@
+/*
+ * Class TermIndex.
+ */
+package jhelp;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class presents in-memory index of whole dictionary. The index maps
+ * every term to {@link jhelp.Data} object with the term and all its
+ * definitions, so {@link jhelp.ServerDb} object can answer SELECT requests
+ * without database. Data of every term is never changed after it is put into
+ * the index, a change replaces whole object. So readers never block and
+ * always see complete data of the term.
+ *
+ * @version 1.0
+ * @see jhelp.ServerDb
+ */
+public class TermIndex implements DictionaryIndex {
+
+    private final ConcurrentHashMap<String, Data> terms
+            = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, String> names
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Method returns data of the term.
+     *
+     * @param term requested term.
+     * @return new {@link Data} object with the term and all its definitions.
+     */
+    public Data get(String term) {
+        Data data = term == null ? null : terms.get(term);
+        if (data == null) {
+            return ServerDb.notFound();
+        }
+        return new Data(data.getOperation(), data.getKey(), data.getValues());
+    }
+
+    /**
+     * Method returns data of the term by its identificator.
+     *
+     * @param idTerm identificator of the term.
+     * @return new {@link Data} object with the term and all its definitions.
+     */
+    public Data get(int idTerm) {
+        return get(names.get(idTerm));
+    }
+
+    /**
+     * Method returns number of terms in the index.
+     *
+     * @return number of terms.
+     */
+    public int size() {
+        return terms.size();
+    }
+
+    @Override
+    public synchronized void put(Data data) {
+        String term = data.getKey().getItem();
+        String old = names.put(data.getKey().getId(), term);
+        terms.put(term, data);
+        if (old != null && !old.equals(term)) {
+            terms.remove(old);
+        }
+    }
+
+    @Override
+    public synchronized void remove(int idTerm) {
+        String old = names.remove(idTerm);
+        if (old != null) {
+            terms.remove(old);
+        }
+    }
+}
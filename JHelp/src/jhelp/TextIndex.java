@@ -0,0 +1,215 @@
+/*
+ * Class TextIndex.
+ */
+package jhelp;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class presents in-memory inverted index of definitions for
+ * {@link JHelp#SEARCH} operation. Definitions are split into lower case
+ * words. For every word the index keeps posting list: terms which
+ * definitions contain the word and number of the word occurrences. Found
+ * terms are ranked by BM25 formula and only first <code>limit</code> terms
+ * are returned. A change of the term updates posting lists of its words only.
+ *
+ * @version 1.0
+ * @see jhelp.ServerDb
+ */
+public class TextIndex implements DictionaryIndex {
+
+    /**
+     * BM25 parameters.
+     */
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * Indexed term: its name, number of words in all its definitions and
+     * number of occurrences of every word.
+     */
+    private static class Document {
+
+        private final String term;
+        private final int length;
+        private final HashMap<String, Integer> words;
+
+        Document(String term, int length, HashMap<String, Integer> words) {
+            this.term = term;
+            this.length = length;
+            this.words = words;
+        }
+    }
+
+    /**
+     * Found term with its score.
+     */
+    private static class Hit implements Comparable<Hit> {
+
+        private final int id;
+        private final double score;
+
+        Hit(int id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Hit o) {
+            return Double.compare(score, o.score);
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Posting lists: word -&gt; identificator of term -&gt; number of
+     * occurrences.
+     */
+    private final HashMap<String, HashMap<Integer, Integer>> postings
+            = new HashMap<>();
+    private final HashMap<Integer, Document> documents = new HashMap<>();
+    private long totalLength;
+
+    /**
+     * Method returns terms which definitions contain any word of the query.
+     * Terms which contain more query words, rarer words or more occurrences
+     * are returned first.
+     *
+     * @param query words to search.
+     * @param limit maximal number of terms.
+     * @return array of found terms. Identificator of every item is
+     * identificator of the term.
+     */
+    public Item[] search(String query, int limit) {
+        HashMap<String, Integer> words = tokenize(query);
+        lock.readLock().lock();
+        try {
+            int n = documents.size();
+            double avgLength = n == 0 ? 1 : Math.max(1.0, (double) totalLength / n);
+            HashMap<Integer, Double> scores = new HashMap<>();
+            for (String word : words.keySet()) {
+                HashMap<Integer, Integer> posting = postings.get(word);
+                if (posting == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (n - posting.size() + 0.5)
+                        / (posting.size() + 0.5));
+                for (Map.Entry<Integer, Integer> e : posting.entrySet()) {
+                    int tf = e.getValue();
+                    int length = documents.get(e.getKey()).length;
+                    double score = idf * tf * (K1 + 1)
+                            / (tf + K1 * (1 - B + B * length / avgLength));
+                    scores.merge(e.getKey(), score, Double::sum);
+                }
+            }
+            PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1);
+            for (Map.Entry<Integer, Double> e : scores.entrySet()) {
+                top.add(new Hit(e.getKey(), e.getValue()));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            Item[] items = new Item[top.size()];
+            for (int i = items.length - 1; i >= 0; --i) {
+                Hit hit = top.poll();
+                items[i] = new Item(hit.id, documents.get(hit.id).term,
+                        JHelp.ORIGIN);
+            }
+            return items;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(Data data) {
+        int id = data.getKey().getId();
+        HashMap<String, Integer> words = new HashMap<>();
+        int length = 0;
+        for (Item value : data.getValues()) {
+            for (Map.Entry<String, Integer> e : tokenize(value.getItem()).entrySet()) {
+                words.merge(e.getKey(), e.getValue(), Integer::sum);
+                length += e.getValue();
+            }
+        }
+        Document doc = new Document(data.getKey().getItem(), length, words);
+        lock.writeLock().lock();
+        try {
+            Document old = documents.put(id, doc);
+            if (old != null) {
+                totalLength -= old.length;
+                HashSet<String> gone = new HashSet<>(old.words.keySet());
+                gone.removeAll(words.keySet());
+                unlink(id, gone);
+            }
+            totalLength += length;
+            for (Map.Entry<String, Integer> e : words.entrySet()) {
+                HashMap<Integer, Integer> posting = postings.get(e.getKey());
+                if (posting == null) {
+                    posting = new HashMap<>(4);
+                    postings.put(e.getKey(), posting);
+                }
+                posting.put(id, e.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(int idTerm) {
+        lock.writeLock().lock();
+        try {
+            Document old = documents.remove(idTerm);
+            if (old != null) {
+                totalLength -= old.length;
+                unlink(idTerm, old.words.keySet());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unlink(int id, Iterable<String> words) {
+        for (String word : words) {
+            HashMap<Integer, Integer> posting = postings.get(word);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * Method splits text into lower case words and counts every word.
+     * Letters and digits form words, all other characters separate words.
+     *
+     * @param text any text.
+     * @return map word -&gt; number of occurrences.
+     */
+    static HashMap<String, Integer> tokenize(String text) {
+        HashMap<String, Integer> words = new HashMap<>();
+        if (text == null) {
+            return words;
+        }
+        String s = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= s.length(); ++i) {
+            boolean letter = i < s.length() && Character.isLetterOrDigit(s.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                words.merge(s.substring(start, i), 1, Integer::sum);
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Class Threads.
+ */
+package jhelp;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class creates threads for {@link jhelp.Server} and
+ * {@link jhelp.ServerDb} objects according to <code>threads</code> property
+ * of configuration file. Property value {@link #PLATFORM} means ordinary
+ * threads, value {@link #VIRTUAL} means virtual threads. Virtual threads are
+ * created through reflection, so the sources are still compiled for Java 8.
+ * If Java machine doesn't support virtual threads (before Java 21) platform
+ * threads are used.
+ *
+ * @version 1.0
+ */
+public final class Threads {
+
+    /**
+     * Value of <code>threads</code> property for platform threads.
+     */
+    public static final String PLATFORM = "platform";
+    /**
+     * Value of <code>threads</code> property for virtual threads.
+     */
+    public static final String VIRTUAL = "virtual";
+
+    private Threads() {
+    }
+
+    /**
+     * Method returns factory of threads with names <code>name-N</code>.
+     *
+     * @param mode {@link #PLATFORM} or {@link #VIRTUAL}.
+     * @param name prefix of thread names.
+     * @return thread factory.
+     */
+    public static ThreadFactory factory(String mode, String name) {
+        if (VIRTUAL.equalsIgnoreCase(mode)) {
+            try {
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                builder = builderClass.getMethod("name", String.class, long.class)
+                        .invoke(builder, name + "-", 0L);
+                return (ThreadFactory) builderClass.getMethod("factory")
+                        .invoke(builder);
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                showMessage("factory(): virtual threads are not supported ("
+                        + ex + "), platform threads are used");
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        return r -> new Thread(r, name + "-" + count.getAndIncrement());
+    }
+
+    /**
+     * Method returns <code>true</code> if threads of the factory are virtual.
+     *
+     * @param factory thread factory.
+     * @return <code>true</code> for virtual threads.
+     */
+    public static boolean isVirtual(ThreadFactory factory) {
+        try {
+            Method m = Thread.class.getMethod("isVirtual");
+            return (Boolean) m.invoke(factory.newThread(() -> {
+            }));
+        } catch (ReflectiveOperationException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Method returns executor which starts new thread of the factory for
+     * every task. It is the way to use virtual threads, they shouldn't be
+     * pooled.
+     *
+     * @param factory factory of virtual threads.
+     * @return new executor or <code>null</code> if Java machine doesn't
+     * support such executors.
+     */
+    public static ExecutorService perTask(ThreadFactory factory) {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+    private static void showMessage(String msg) {
+        System.out.println("ThreadsError: " + msg);
+    }
+}
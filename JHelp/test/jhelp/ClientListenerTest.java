@@ -0,0 +1,107 @@
+/*
+ * Class ClientListenerTest.
+ */
+package jhelp;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of {@link ClientListener} object connected to server which doesn't
+ * answer or disconnects. Server side is simulated by a socket which reads
+ * requests and doesn't respond.
+ *
+ * @version 1.0
+ */
+public class ClientListenerTest {
+
+    private ServerSocket server;
+    private volatile Socket serverSocket;
+    private ClientListener listener;
+
+    /**
+     * Method connects {@link ClientListener} object to silent server.
+     *
+     * @throws IOException if the server can't be started.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = new ServerSocket(0);
+        Thread accept = new Thread(() -> {
+            try {
+                serverSocket = server.accept();
+                DataLink link = DataLink.accept(serverSocket);
+                while (true) {
+                    link.read();
+                }
+            } catch (IOException ex) {
+                /*the socket is closed by the test*/
+            }
+        });
+        accept.setDaemon(true);
+        accept.start();
+        listener = new ClientListener(null);
+        listener.setTimeout(300);
+        assertEquals(JHelp.OK, listener.connect("localhost",
+                server.getLocalPort(), DataLink.BINARY, 0, false));
+    }
+
+    /**
+     * Method closes the connection and the server.
+     *
+     * @throws IOException if the server can't be closed.
+     */
+    @After
+    public void tearDown() throws IOException {
+        listener.disconnect();
+        server.close();
+    }
+
+    private static Data select() {
+        return new Data(JHelp.SELECT, new Item("java"), new Item[0]);
+    }
+
+    /**
+     * {@link ClientListener#getData(Data)} waits no longer than the timeout.
+     */
+    @Test
+    public void getDataTimeout() {
+        Data request = select();
+        long start = System.currentTimeMillis();
+        assertSame(request, listener.getData(request));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    /**
+     * Requests fail at once after connection is lost.
+     *
+     * @throws Exception if waiting is interrupted.
+     */
+    @Test
+    public void lostConnection() throws Exception {
+        while (serverSocket == null) {
+            Thread.sleep(10);
+        }
+        serverSocket.close();
+        Thread.sleep(200);
+        for (int i = 0; i < 10; ++i) {
+            try {
+                listener.getDataAsync(select(), 0).get(1, TimeUnit.SECONDS);
+                fail("Request is answered by closed server");
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof IOException);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Class CompressorTest.
+ */
+package jhelp;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of {@link Compressor} object which is closed while its frames are
+ * compressed and decompressed by other threads.
+ *
+ * @version 1.0
+ */
+public class CompressorTest {
+
+    private static byte[] frame() {
+        byte[] bytes = new byte[64 * 1024];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) ("definition ".charAt(i % 11));
+        }
+        return bytes;
+    }
+
+    /**
+     * Compressed frame is decompressed to the same bytes.
+     *
+     * @throws IOException if the frame can't be decompressed.
+     */
+    @Test
+    public void roundTrip() throws IOException {
+        Compressor compressor = new Compressor();
+        byte[] bytes = frame();
+        int n = compressor.deflate(bytes, bytes.length);
+        assertTrue(n > 0 && n < bytes.length);
+        byte[] raw = compressor.inflate(compressor.deflated(), 0, n,
+                bytes.length);
+        assertArrayEquals(bytes, Arrays.copyOf(raw, bytes.length));
+        compressor.close();
+    }
+
+    /**
+     * Closed compressor sends frames uncompressed and refuses compressed
+     * frames, second close does nothing.
+     */
+    @Test
+    public void closed() {
+        Compressor compressor = new Compressor();
+        byte[] bytes = frame();
+        int n = compressor.deflate(bytes, bytes.length);
+        byte[] compressed = Arrays.copyOf(compressor.deflated(), n);
+        compressor.close();
+        compressor.close();
+        assertEquals(-1, compressor.deflate(bytes, bytes.length));
+        try {
+            compressor.inflate(compressed, 0, n, bytes.length);
+            fail("Closed compressor inflates");
+        } catch (IOException ex) {
+            assertEquals("Compressor is closed", ex.getMessage());
+        }
+    }
+
+    /**
+     * Close while reader and writer threads use the compressor doesn't
+     * crash them: their calls finish or fail by exception.
+     *
+     * @throws Exception if a thread fails unexpectedly.
+     */
+    @Test
+    public void closeWhileInUse() throws Exception {
+        byte[] bytes = frame();
+        for (int round = 0; round < 20; ++round) {
+            Compressor compressor = new Compressor();
+            int n = compressor.deflate(bytes, bytes.length);
+            byte[] compressed = Arrays.copyOf(compressor.deflated(), n);
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            Thread reader = new Thread(() -> {
+                try {
+                    while (true) {
+                        compressor.inflate(compressed, 0, n, bytes.length);
+                    }
+                } catch (IOException ex) {
+                    /*closed*/
+                } catch (Throwable ex) {
+                    error.set(ex);
+                }
+            });
+            Thread writer = new Thread(() -> {
+                try {
+                    while (compressor.deflate(bytes, bytes.length) > 0) {
+                        /*until closed*/
+                    }
+                } catch (Throwable ex) {
+                    error.set(ex);
+                }
+            });
+            reader.start();
+            writer.start();
+            Thread.sleep(5);
+            compressor.close();
+            reader.join(5000);
+            writer.join(5000);
+            if (error.get() != null) {
+                throw new AssertionError(error.get());
+            }
+        }
+    }
+}
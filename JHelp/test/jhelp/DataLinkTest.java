@@ -0,0 +1,120 @@
+/*
+ * Class DataLinkTest.
+ */
+package jhelp;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of negotiation of {@link DataLink} connection: both protocols are
+ * accepted on the same port and peer of old binary version is refused.
+ *
+ * @version 1.0
+ */
+public class DataLinkTest {
+
+    private ServerSocket server;
+    private CompletableFuture<DataLink> accepted;
+
+    /**
+     * Method starts server side which accepts one connection.
+     *
+     * @throws IOException if the port can't be opened.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = new ServerSocket(0);
+        accepted = CompletableFuture.supplyAsync(() -> {
+            try {
+                return DataLink.accept(server.accept());
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex.getMessage(), ex);
+            }
+        });
+    }
+
+    /**
+     * Method closes the port.
+     *
+     * @throws IOException if the port can't be closed.
+     */
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    private void echo(String protocol) throws Exception {
+        try (Socket socket = new Socket("localhost", server.getLocalPort())) {
+            DataLink client = DataLink.connect(socket, protocol);
+            DataLink link = accepted.get(5, TimeUnit.SECONDS);
+            Data request = new Data(JHelp.SELECT, new Item("java"), new Item[0]);
+            request.setCursor(20);
+            request.setLimit(10);
+            client.write(request);
+            Data data = link.read();
+            assertEquals("java", data.getKey().getItem());
+            assertEquals(20, data.getCursor());
+            assertEquals(10, data.getLimit());
+            link.close();
+            client.close();
+        }
+    }
+
+    /**
+     * Binary client is accepted.
+     *
+     * @throws Exception if the connection fails.
+     */
+    @Test
+    public void binary() throws Exception {
+        echo(DataLink.BINARY);
+    }
+
+    /**
+     * Client of Java serialization is accepted on the same port.
+     *
+     * @throws Exception if the connection fails.
+     */
+    @Test
+    public void object() throws Exception {
+        echo(DataLink.OBJECT);
+    }
+
+    /**
+     * Client of version 1 of binary protocol is refused by server and
+     * refuses the answer of server.
+     *
+     * @throws Exception if the connection fails unexpectedly.
+     */
+    @Test
+    public void oldVersion() throws Exception {
+        try (Socket socket = new Socket("localhost", server.getLocalPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(DataLink.MAGIC_V1);
+            out.writeInt(DataLink.CAPABILITIES);
+            out.flush();
+            try {
+                accepted.get(5, TimeUnit.SECONDS);
+                fail("Old client is accepted");
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause().getMessage().contains("old version"));
+            }
+            int answer = new DataInputStream(socket.getInputStream()).readInt();
+            assertTrue(answer != DataLink.MAGIC_V1);
+        }
+    }
+}
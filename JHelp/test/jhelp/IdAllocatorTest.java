@@ -0,0 +1,168 @@
+/*
+ * Class IdAllocatorTest.
+ */
+package jhelp;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of {@link IdAllocator} object which falls back to counting in memory
+ * only if database doesn't support sequences.
+ *
+ * @version 1.0
+ */
+public class IdAllocatorTest {
+
+    private static int databases;
+    private Connection connection;
+    /**
+     * Error thrown by statements with sequence, or <code>null</code> if the
+     * statements are executed.
+     */
+    private SQLException sequenceError;
+
+    /**
+     * Method creates table with records 1..10.
+     *
+     * @throws SQLException if the table can't be created.
+     */
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:derby:memory:ids"
+                + ++databases + ";create=true");
+        try (Statement st = connection.createStatement()) {
+            st.execute("CREATE TABLE TBLTERMS (ID INT PRIMARY KEY, "
+                    + "TERM VARCHAR(128) NOT NULL)");
+            for (int i = 1; i <= 10; ++i) {
+                st.execute("INSERT INTO TBLTERMS VALUES (" + i + ", 't" + i
+                        + "')");
+            }
+        }
+    }
+
+    /**
+     * Method closes the connection.
+     *
+     * @throws SQLException if the connection can't be closed.
+     */
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * Method returns connection which throws {@link #sequenceError} for
+     * statements with sequence. Statements are cached by the connection, so
+     * the error is thrown by new connection only.
+     */
+    private DbConnection connection() {
+        Connection c = (Connection) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (sequenceError != null && args != null
+                    && args.length > 0 && args[0] instanceof String
+                    && ((String) args[0]).contains("SEQ")) {
+                        throw sequenceError;
+                    }
+                    if (method.getName().equals("createStatement")) {
+                        return statement(connection.createStatement());
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                });
+        return new DbConnection(null, c);
+    }
+
+    private Statement statement(Statement st) {
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Statement.class}, (proxy, method, args) -> {
+                    if (sequenceError != null && args != null
+                    && args.length > 0 && args[0] instanceof String
+                    && ((String) args[0]).contains("SEQ")) {
+                        throw sequenceError;
+                    }
+                    try {
+                        return method.invoke(st, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Transient error is thrown and the sequence is used by the next call.
+     *
+     * @throws SQLException if database fails.
+     */
+    @Test
+    public void transientErrorKeepsSequence() throws SQLException {
+        IdAllocator ids = new IdAllocator("TBLTERMS", 100, true);
+        DbConnection con = connection();
+        sequenceError = new SQLTransientConnectionException("Connection lost",
+                "08006");
+        try {
+            ids.next(con);
+            fail("Transient error is hidden");
+        } catch (SQLException ex) {
+            assertEquals("08006", ex.getSQLState());
+        }
+        sequenceError = null;
+        assertEquals(11, ids.next(con));
+        try (Statement st = connection.createStatement()) {
+            st.executeQuery("VALUES NEXT VALUE FOR TBLTERMS_SEQ").close();
+        }
+    }
+
+    /**
+     * Error of the sequence after the first block is thrown, identificators
+     * aren't counted in memory.
+     *
+     * @throws SQLException if database fails.
+     */
+    @Test
+    public void laterErrorIsThrown() throws SQLException {
+        IdAllocator ids = new IdAllocator("TBLTERMS", 2, true);
+        DbConnection con = connection();
+        assertEquals(11, ids.next(con));
+        assertEquals(12, ids.next(con));
+        sequenceError = new SQLSyntaxErrorException("No sequence", "42X01");
+        try {
+            ids.next(connection());
+            fail("Error of the sequence is hidden");
+        } catch (SQLException ex) {
+            assertEquals("42X01", ex.getSQLState());
+        }
+        sequenceError = null;
+        assertEquals(13, ids.next(con));
+    }
+
+    /**
+     * Database without sequences is detected by the first reservation.
+     *
+     * @throws SQLException if database fails.
+     */
+    @Test
+    public void unsupportedSequence() throws SQLException {
+        IdAllocator ids = new IdAllocator("TBLTERMS", 100, true);
+        DbConnection con = connection();
+        sequenceError = new SQLSyntaxErrorException("Syntax error", "42X01");
+        assertEquals(11, ids.next(con));
+        assertEquals(12, ids.next(con));
+    }
+}
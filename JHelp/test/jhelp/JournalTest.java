@@ -0,0 +1,145 @@
+/*
+ * Class JournalTest.
+ */
+package jhelp;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLNonTransientException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of {@link Journal} object: changes which break constraints of
+ * database are refused before they are written and the journal stops after
+ * database rejects its record.
+ *
+ * @version 1.0
+ */
+public class JournalTest {
+
+    private File file;
+    private Journal journal;
+
+    /**
+     * Method creates empty journal.
+     *
+     * @throws IOException if the journal can't be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("jhelp-test", ".journal");
+        journal = new Journal(file, false, 10);
+    }
+
+    /**
+     * Method closes the journal and removes its file.
+     */
+    @After
+    public void tearDown() {
+        journal.close(0);
+        file.delete();
+    }
+
+    /**
+     * Rejected record stops the journal, so the record isn't lost silently
+     * and new changes are refused.
+     *
+     * @throws IOException if the journal fails before the rejection.
+     * @throws InterruptedException if waiting is interrupted.
+     */
+    @Test
+    public void rejectedRecordStopsJournal() throws IOException,
+            InterruptedException {
+        journal.start(records -> {
+            throw new SQLNonTransientException("Rejected", "23000",
+                    new SQLIntegrityConstraintViolationException());
+        });
+        journal.append(Collections.singletonList(new Journal.Record(
+                Journal.INSERT_TERM, 1, 0, "java")));
+        try {
+            journal.drain();
+            fail("Rejected record is drained");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().contains("Rejected"));
+        }
+        try {
+            journal.append(Collections.singletonList(new Journal.Record(
+                    Journal.INSERT_TERM, 2, 0, "derby")));
+            fail("Stopped journal accepts records");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().startsWith("Journal is stopped"));
+        }
+        assertTrue(file.length() > 0);
+    }
+
+    /**
+     * Changes which don't fit columns of database are refused by
+     * {@link ServerDb} object before they are written to the journal.
+     *
+     * @throws IOException if configuration can't be written.
+     * @throws SQLException if database can't be created.
+     */
+    @Test
+    public void oversizedChangeIsRefused() throws IOException, SQLException {
+        String url = "jdbc:derby:memory:journal;create=true";
+        try (Connection c = DriverManager.getConnection(url);
+                Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE TBLTERMS (ID INT PRIMARY KEY, "
+                    + "TERM VARCHAR(128) NOT NULL)");
+            st.execute("CREATE TABLE TBLDEFINITIONS (ID INT PRIMARY KEY, "
+                    + "DEFINITION VARCHAR(4000) NOT NULL, "
+                    + "TERM_ID INT REFERENCES TBLTERMS(ID))");
+        }
+        File serverJournal = File.createTempFile("jhelp-test", ".journal");
+        File config = File.createTempFile("jhelp-test", ".cfg");
+        Properties prop = new Properties();
+        prop.setProperty("url", url);
+        prop.setProperty("serverPort", "0");
+        prop.setProperty("journal", "true");
+        prop.setProperty("journalFile", serverJournal.getPath());
+        try (FileWriter fw = new FileWriter(config)) {
+            prop.store(fw, "JournalTest");
+        }
+        ServerDb server = new ServerDb();
+        try {
+            assertEquals(JHelp.READY, server.connect(new String[]{
+                config.getPath()}));
+            char[] longTerm = new char[129];
+            Arrays.fill(longTerm, 't');
+            assertEquals(JHelp.ERROR, server.getData(new Data(JHelp.INSERT,
+                    new Item(new String(longTerm)), new Item[]{
+                        new Item("Definition")})).getOperation());
+            char[] longDefinition = new char[4001];
+            Arrays.fill(longDefinition, 'd');
+            assertEquals(JHelp.ERROR, server.getData(new Data(JHelp.INSERT,
+                    new Item("java"), new Item[]{
+                        new Item(new String(longDefinition))})).getOperation());
+            Data java = server.getData(new Data(JHelp.INSERT, new Item("java"),
+                    new Item[]{new Item("A programming language")}));
+            assertEquals("java", java.getKey().getItem());
+            assertEquals(JHelp.ERROR, server.getData(new Data(JHelp.UPDATE,
+                    new Item(java.getKey().getId(), "java", JHelp.ORIGIN),
+                    new Item[]{new Item(java.getValue(0).getId() + 1,
+                        "Coffee", JHelp.UPDATE)})).getOperation());
+        } finally {
+            server.disconnect();
+            config.delete();
+            serverJournal.delete();
+        }
+    }
+}
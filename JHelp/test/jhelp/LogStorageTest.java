@@ -0,0 +1,199 @@
+/*
+ * Class LogStorageTest.
+ */
+package jhelp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of recovery and compaction of {@link LogStorage} object. Crash is
+ * simulated by opening the log again without closing it, so the new object
+ * sees only records written to the file.
+ *
+ * @version 1.0
+ */
+public class LogStorageTest {
+
+    private File file;
+    private LogStorage log;
+
+    /**
+     * Value item which fails when its state is read.
+     */
+    private static class BrokenItem extends Item {
+
+        BrokenItem(int id) {
+            super(id, "broken", JHelp.DELETE);
+        }
+
+        @Override
+        public int getState() {
+            throw new IllegalStateException("Broken item");
+        }
+    }
+
+    /**
+     * Method creates empty log.
+     *
+     * @throws IOException if the log can't be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("jhelp-test", ".log");
+        file.delete();
+        log = new LogStorage(file, true);
+    }
+
+    /**
+     * Method closes the log and removes its file.
+     */
+    @After
+    public void tearDown() {
+        log.close();
+        file.delete();
+    }
+
+    private Data insert(String term, String definition) throws IOException {
+        log.change(new Data(JHelp.INSERT, new Item(term), new Item[]{
+            new Item(definition)}), new LinkedHashMap<>());
+        return log.select(term);
+    }
+
+    private LogStorage crash() throws IOException {
+        LogStorage restarted = new LogStorage(file, true);
+        log.close();
+        log = restarted;
+        return restarted;
+    }
+
+    /**
+     * Changes and committed batches are replayed after crash.
+     *
+     * @throws IOException if the log fails.
+     */
+    @Test
+    public void replay() throws IOException {
+        Data java = insert("java", "A programming language");
+        insert("derby", "Embedded database");
+        log.change(new Data(JHelp.UPDATE, new Item(java.getKey().getId(),
+                "jvm", JHelp.UPDATE), new Item[]{new Item(
+                    java.getValue(0).getId(), "Virtual machine",
+                    JHelp.UPDATE)}), new LinkedHashMap<>());
+        Data[] ops = {
+            new Data(JHelp.INSERT, new Item("python"), new Item[]{
+                new Item("A snake")}),
+            new Data(JHelp.INSERT, new Item("python"), new Item[]{
+                new Item("A language")})};
+        log.batch(ops, new Data[2], new int[2], new LinkedHashMap<>());
+        crash();
+        assertEquals(JHelp.ERROR, log.select("java").getKey().getId());
+        assertEquals("Virtual machine", log.select("jvm").getValue(0).getItem());
+        assertEquals(1, log.select("derby").getValues().length);
+        assertEquals(2, log.select("python").getValues().length);
+    }
+
+    /**
+     * Torn record at the end of the log is cut off and records appended
+     * after it are replayed.
+     *
+     * @throws IOException if the log fails.
+     */
+    @Test
+    public void tornTail() throws IOException {
+        insert("java", "A programming language");
+        int end = log.size();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(end);
+            raf.writeInt(100);
+            raf.writeInt(12345);
+            raf.write(new byte[]{1, 2, 3});
+        }
+        crash();
+        assertEquals(end, log.size());
+        insert("derby", "Embedded database");
+        crash();
+        assertEquals(1, log.select("java").getValues().length);
+        assertEquals(1, log.select("derby").getValues().length);
+    }
+
+    /**
+     * Failed batch leaves neither memory changes nor records, so later
+     * changes are replayed after crash.
+     *
+     * @throws IOException if the log fails.
+     */
+    @Test
+    public void failedBatch() throws IOException {
+        Data java = insert("java", "A programming language");
+        Data[] ops = {
+            new Data(JHelp.INSERT, new Item("python"), new Item[]{
+                new Item("A snake")}),
+            new Data(JHelp.DELETE, new Item(java.getKey().getId(), "java",
+                    JHelp.ORIGIN), new Item[]{new BrokenItem(
+                        java.getValue(0).getId())})};
+        try {
+            log.batch(ops, new Data[2], new int[2], new LinkedHashMap<>());
+            fail("Batch with broken item is executed");
+        } catch (IllegalStateException ex) {
+            /*expected*/
+        }
+        assertEquals(JHelp.ERROR, log.select("python").getKey().getId());
+        insert("derby", "Embedded database");
+        crash();
+        assertEquals(JHelp.ERROR, log.select("python").getKey().getId());
+        assertEquals(1, log.select("java").getValues().length);
+        assertEquals(1, log.select("derby").getValues().length);
+    }
+
+    /**
+     * Operation with null value item is refused before the log is changed.
+     *
+     * @throws IOException if the log fails.
+     */
+    @Test(expected = IOException.class)
+    public void nullValue() throws IOException {
+        Data java = insert("java", "A programming language");
+        log.batch(new Data[]{new Data(JHelp.DELETE, new Item(
+            java.getKey().getId(), "java", JHelp.ORIGIN), new Item[]{null})},
+                new Data[1], new int[1], new LinkedHashMap<>());
+    }
+
+    /**
+     * Compaction keeps current data only, the log can be changed after
+     * compaction and is replayed after crash.
+     *
+     * @throws IOException if the log fails.
+     */
+    @Test
+    public void compact() throws IOException {
+        for (int i = 0; i < 100; ++i) {
+            insert("term" + i, "definition " + i);
+        }
+        Data term = log.select("term5");
+        for (int i = 0; i < 1000; ++i) {
+            log.change(new Data(JHelp.UPDATE, new Item(term.getKey().getId(),
+                    "term5", JHelp.ORIGIN), new Item[]{new Item(
+                        term.getValue(0).getId(), "version " + i,
+                        JHelp.UPDATE)}), new LinkedHashMap<>());
+        }
+        int before = log.size();
+        log.compact();
+        assertTrue(log.size() < before / 5);
+        assertEquals("version 999", log.select("term5").getValue(0).getItem());
+        insert("after", "compaction");
+        crash();
+        assertEquals("version 999", log.select("term5").getValue(0).getItem());
+        assertEquals("definition 99", log.select("term99").getValue(0).getItem());
+        assertEquals("compaction", log.select("after").getValue(0).getItem());
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Class ServerTest.
+ */
+package jhelp;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link Server} object connected to database which doesn't answer,
+ * disconnects or answers by pages. Database side is simulated by a socket
+ * which reads requests and responds only if {@link #answer} is set.
+ *
+ * @version 1.0
+ */
+public class ServerTest {
+
+    private ServerSocket db;
+    private Socket dbSocket;
+    private Server server;
+    private File config;
+    /**
+     * Response of database to a request or <code>null</code> if database
+     * doesn't respond.
+     */
+    private volatile Function<Data, Data> answer;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * Method connects {@link Server} object to silent database.
+     *
+     * @throws Exception if the database can't be started.
+     */
+    @Before
+    public void setUp() throws Exception {
+        db = new ServerSocket(0);
+        Properties prop = new Properties();
+        prop.setProperty("port", "0");
+        prop.setProperty("dbHost", "localhost");
+        prop.setProperty("dbPort", String.valueOf(db.getLocalPort()));
+        prop.setProperty("cacheSize", "100");
+        prop.setProperty("requestTimeout", "300");
+        config = File.createTempFile("jhelp-test", ".cfg");
+        try (FileWriter fw = new FileWriter(config)) {
+            prop.store(fw, "ServerTest");
+        }
+        Thread accept = new Thread(() -> {
+            try {
+                dbSocket = db.accept();
+                DataLink link = DataLink.accept(dbSocket);
+                while (true) {
+                    Data request = link.read();
+                    requests.incrementAndGet();
+                    Function<Data, Data> a = answer;
+                    if (a != null) {
+                        Data response = a.apply(request);
+                        response.setRequestId(request.getRequestId());
+                        link.write(response);
+                    }
+                }
+            } catch (IOException ex) {
+                /*the socket is closed by the test*/
+            }
+        });
+        accept.setDaemon(true);
+        accept.start();
+        server = new Server(0, db.getLocalPort());
+        assertEquals(JHelp.OK, server.connect(new String[]{config.getPath()}));
+    }
+
+    /**
+     * Method closes the servers.
+     *
+     * @throws IOException if the database can't be closed.
+     */
+    @After
+    public void tearDown() throws IOException {
+        server.disconnect();
+        db.close();
+        config.delete();
+    }
+
+    private static Data select() {
+        return new Data(JHelp.SELECT, new Item("java"), new Item[0]);
+    }
+
+    /**
+     * Request without response fails after <code>requestTimeout</code>.
+     */
+    @Test
+    public void requestTimeout() {
+        long start = System.currentTimeMillis();
+        assertEquals(JHelp.ERROR, server.getData(select()).getOperation());
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    /**
+     * Requests fail at once after connection with database is lost.
+     *
+     * @throws Exception if waiting is interrupted.
+     */
+    @Test
+    public void disconnectedDatabase() throws Exception {
+        while (dbSocket == null) {
+            Thread.sleep(10);
+        }
+        dbSocket.close();
+        Thread.sleep(200);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 10; ++i) {
+            assertEquals(JHelp.DISCONNECT, server.getData(select())
+                    .getOperation());
+        }
+        assertTrue(System.currentTimeMillis() - start < 300);
+    }
+
+    /**
+     * Page of SELECT request is read from database by the page, response
+     * with a page of large term isn't cached, whole small term is cached.
+     */
+    @Test
+    public void pagedSelect() {
+        answer = request -> {
+            Item[] values = new Item[request.getLimit()];
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = new Item(i + 1, "Definition " + (i + 1),
+                        JHelp.ORIGIN);
+            }
+            Data page = new Data(JHelp.ORIGIN, new Item(1,
+                    request.getKey().getItem(), JHelp.ORIGIN), values);
+            page.setTotal(request.getKey().getItem().equals("java") ? 50
+                    : values.length);
+            if (page.getTotal() > values.length) {
+                page.setCursor(values.length);
+            }
+            page.setVersion(1);
+            return page;
+        };
+        for (int i = 1; i <= 2; ++i) {
+            Data request = select();
+            request.setLimit(2);
+            Data page = server.getData(request);
+            assertEquals(2, page.getValues().length);
+            assertEquals(50, page.getTotal());
+            assertEquals(2, page.getCursor());
+            assertEquals(i, requests.get());
+        }
+        for (int i = 0; i < 2; ++i) {
+            Data request = new Data(JHelp.SELECT, new Item("derby"),
+                    new Item[0]);
+            request.setLimit(2);
+            assertEquals(2, server.getData(request).getValues().length);
+            assertEquals(3, requests.get());
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Class StorageTest.
+ */
+package jhelp;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Behavioral tests of {@link ServerDb} object which are run against both
+ * storages: JDBC storage over embedded Derby database and embedded log
+ * storage. Indexes are switched off, so every request is served by the
+ * storage itself.
+ *
+ * @version 1.0
+ */
+@RunWith(Parameterized.class)
+public class StorageTest {
+
+    private static final AtomicInteger databases = new AtomicInteger();
+    private final String storage;
+    private ServerDb server;
+    private File logFile;
+    private File config;
+
+    /**
+     * Method returns storages of the test.
+     *
+     * @return names of storages.
+     */
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> storages() {
+        return Arrays.asList(new Object[][]{{"jdbc"}, {"log"}});
+    }
+
+    /**
+     * Creates a new instance of <code>StorageTest</code>.
+     *
+     * @param storage <code>storage</code> property of {@link ServerDb}
+     * object.
+     */
+    public StorageTest(String storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Method starts {@link ServerDb} object with empty storage and adds
+     * dictionary of three terms.
+     *
+     * @throws IOException if configuration can't be written.
+     * @throws SQLException if database can't be created.
+     */
+    @Before
+    public void setUp() throws IOException, SQLException {
+        Properties prop = new Properties();
+        prop.setProperty("serverPort", "0");
+        prop.setProperty("storage", storage);
+        prop.setProperty("prefixIndex", "false");
+        prop.setProperty("fuzzyIndex", "false");
+        prop.setProperty("textIndex", "false");
+        if ("log".equals(storage)) {
+            logFile = File.createTempFile("jhelp-test", ".log");
+            logFile.delete();
+            prop.setProperty("logFile", logFile.getPath());
+        } else {
+            String url = "jdbc:derby:memory:storage"
+                    + databases.incrementAndGet() + ";create=true";
+            try (Connection c = DriverManager.getConnection(url);
+                    Statement st = c.createStatement()) {
+                st.execute("CREATE TABLE TBLTERMS (ID INT PRIMARY KEY, "
+                        + "TERM VARCHAR(128) NOT NULL)");
+                st.execute("CREATE TABLE TBLDEFINITIONS (ID INT PRIMARY KEY, "
+                        + "DEFINITION VARCHAR(4000) NOT NULL, "
+                        + "TERM_ID INT REFERENCES TBLTERMS(ID))");
+            }
+            prop.setProperty("url", url);
+        }
+        config = File.createTempFile("jhelp-test", ".cfg");
+        try (FileWriter fw = new FileWriter(config)) {
+            prop.store(fw, "StorageTest");
+        }
+        server = new ServerDb();
+        assertEquals(JHelp.READY, server.connect(new String[]{config.getPath()}));
+        insert("java", "A programming language");
+        insert("java", "An island in Indonesia");
+        insert("derby", "Embedded database");
+        insert("socket", "Network endpoint");
+    }
+
+    /**
+     * Method stops {@link ServerDb} object and removes its files.
+     */
+    @After
+    public void tearDown() {
+        server.disconnect();
+        config.delete();
+        if (logFile != null) {
+            logFile.delete();
+        }
+    }
+
+    private Data insert(String term, String definition) {
+        return server.getData(new Data(JHelp.INSERT, new Item(term),
+                new Item[]{new Item(definition)}));
+    }
+
+    private Data select(String term) {
+        return server.getData(new Data(JHelp.SELECT, new Item(term),
+                new Item[0]));
+    }
+
+    private static String[] definitions(Data data) {
+        String[] items = new String[data.getValues().length];
+        for (int i = 0; i < items.length; ++i) {
+            items[i] = data.getValue(i).getItem();
+        }
+        return items;
+    }
+
+    private static String[] terms(Data data) {
+        String[] items = definitions(data);
+        Arrays.sort(items);
+        return items;
+    }
+
+    /**
+     * SELECT returns all definitions of the term in order of insertion and
+     * unknown term is not found.
+     */
+    @Test
+    public void select() {
+        Data data = select("java");
+        assertEquals("java", data.getKey().getItem());
+        assertTrue(data.getKey().getId() != JHelp.ERROR);
+        assertTrue(data.getVersion() != 0);
+        assertEquals(Arrays.asList("A programming language",
+                "An island in Indonesia"), Arrays.asList(definitions(data)));
+        assertEquals(JHelp.ERROR, select("python").getKey().getId());
+    }
+
+    /**
+     * INSERT of new term creates it, INSERT of known term adds definition.
+     */
+    @Test
+    public void insert() {
+        Data data = insert("python", "A snake");
+        assertEquals("python", data.getKey().getItem());
+        assertEquals(1, data.getValues().length);
+        int id = data.getKey().getId();
+        data = insert("python", "A language");
+        assertEquals(id, data.getKey().getId());
+        assertEquals(Arrays.asList("A snake", "A language"),
+                Arrays.asList(definitions(select("python"))));
+    }
+
+    /**
+     * Spaces around the term are removed, so the term is found with and
+     * without them.
+     */
+    @Test
+    public void trimmedTerm() {
+        int id = insert(" scala ", "A language").getKey().getId();
+        assertEquals("scala", select("scala").getKey().getItem());
+        assertEquals(id, select(" scala").getKey().getId());
+        assertEquals(id, insert("scala", "An opera house").getKey().getId());
+    }
+
+    /**
+     * UPDATE changes definition and renames term, UPDATE of term which
+     * wasn't found is refused.
+     */
+    @Test
+    public void update() {
+        Data java = select("java");
+        Item value = java.getValue(1);
+        server.getData(new Data(JHelp.UPDATE, new Item(java.getKey().getId(),
+                "java", JHelp.ORIGIN), new Item[]{new Item(value.getId(),
+                    "Main island of Indonesia", JHelp.UPDATE)}));
+        assertEquals("Main island of Indonesia", select("java").getValue(1)
+                .getItem());
+        server.getData(new Data(JHelp.UPDATE, new Item(java.getKey().getId(),
+                "jvm", JHelp.UPDATE), new Item[]{new Item()}));
+        assertEquals(JHelp.ERROR, select("java").getKey().getId());
+        assertEquals(java.getKey().getId(), select("jvm").getKey().getId());
+        Data refused = server.getData(new Data(JHelp.UPDATE, new Item("jvm"),
+                new Item[]{new Item(1, "x", JHelp.UPDATE)}));
+        assertEquals("**At first do a search**", refused.getValue(0).getItem());
+    }
+
+    /**
+     * DELETE removes definition, term without definitions is removed if it
+     * is requested.
+     */
+    @Test
+    public void delete() {
+        Data java = select("java");
+        server.getData(new Data(JHelp.DELETE, new Item(java.getKey().getId(),
+                "java", JHelp.ORIGIN), new Item[]{new Item(
+                    java.getValue(0).getId(), null, JHelp.DELETE)}));
+        assertEquals(Arrays.asList("An island in Indonesia"),
+                Arrays.asList(definitions(select("java"))));
+        Data derby = select("derby");
+        server.getData(new Data(JHelp.DELETE, new Item(derby.getKey().getId(),
+                "derby", JHelp.DELETE), new Item[]{new Item(
+                    derby.getValue(0).getId(), null, JHelp.DELETE)}));
+        assertEquals(JHelp.ERROR, select("derby").getKey().getId());
+        Data prefix = server.getData(new Data(JHelp.PREFIX, new Item("d"),
+                new Item[0]));
+        assertEquals(0, prefix.getValues().length);
+    }
+
+    /**
+     * BATCH executes all operations and returns current data of term of
+     * every operation, also if the term is renamed by later operation.
+     */
+    @Test
+    public void batch() {
+        Data java = select("java");
+        Data socket = select("socket");
+        Data request = new Data(JHelp.BATCH, new Item("batch"), new Item[0]);
+        request.setBatch(new Data[]{
+            new Data(JHelp.INSERT, new Item("python"), new Item[]{
+                new Item("A snake")}),
+            new Data(JHelp.INSERT, new Item("java"), new Item[]{
+                new Item("Coffee")}),
+            new Data(JHelp.UPDATE, new Item(java.getKey().getId(), "jvm",
+                    JHelp.UPDATE), new Item[]{new Item()}),
+            new Data(JHelp.DELETE, new Item(socket.getKey().getId(), "socket",
+                    JHelp.DELETE), new Item[]{new Item(
+                        socket.getValue(0).getId(), null, JHelp.DELETE)})});
+        Data response = server.getData(request);
+        assertEquals(JHelp.BATCH, response.getOperation());
+        Data[] results = response.getBatch();
+        assertEquals(4, results.length);
+        for (Data result : results) {
+            assertNotNull(result);
+        }
+        assertEquals("python", results[0].getKey().getItem());
+        assertEquals("jvm", results[1].getKey().getItem());
+        assertEquals(3, results[1].getValues().length);
+        assertEquals("jvm", results[2].getKey().getItem());
+        assertEquals(JHelp.ERROR, results[3].getKey().getId());
+        assertEquals(JHelp.ERROR, select("socket").getKey().getId());
+        assertEquals(Arrays.asList("A programming language",
+                "An island in Indonesia", "Coffee"),
+                Arrays.asList(definitions(select("jvm"))));
+    }
+
+    /**
+     * Invalid BATCH is refused without changes.
+     */
+    @Test
+    public void invalidBatch() {
+        Data request = new Data(JHelp.BATCH, new Item("batch"), new Item[0]);
+        request.setBatch(new Data[]{
+            new Data(JHelp.INSERT, new Item("python"), new Item[]{
+                new Item("A snake")}),
+            new Data(JHelp.DELETE, new Item(1, "java", JHelp.ORIGIN),
+            new Item[]{null})});
+        assertEquals(JHelp.ERROR, server.getData(request).getOperation());
+        assertEquals(JHelp.ERROR, select("python").getKey().getId());
+    }
+
+    /**
+     * PREFIX returns terms which start with the prefix ordered by name.
+     */
+    @Test
+    public void prefix() {
+        insert("javadoc", "Documentation tool");
+        Data data = server.getData(new Data(JHelp.PREFIX, new Item("jav"),
+                new Item[0]));
+        assertEquals(Arrays.asList("java", "javadoc"),
+                Arrays.asList(definitions(data)));
+    }
+
+    /**
+     * PREFIX without prefix finds nothing.
+     */
+    @Test
+    public void nullPrefix() {
+        Data data = server.getData(new Data(JHelp.PREFIX, new Item(null),
+                new Item[0]));
+        assertEquals(JHelp.PREFIX, data.getOperation());
+        assertEquals(0, data.getValues().length);
+    }
+
+    /**
+     * SEARCH returns terms which definitions contain the words.
+     */
+    @Test
+    public void search() {
+        Data data = server.getData(new Data(JHelp.SEARCH, new Item("database"),
+                new Item[0]));
+        assertEquals(Arrays.asList("derby"), Arrays.asList(terms(data)));
+        data = server.getData(new Data(JHelp.SEARCH, new Item("island"),
+                new Item[0]));
+        assertEquals(Arrays.asList("java"), Arrays.asList(terms(data)));
+    }
+}